@@ -0,0 +1,94 @@
+package qirkat;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of move generation, legality checking, making and undoing
+ *  moves, and copying on a Board.
+ *  @author Chelsea Chen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    /** The position benchmarked. */
+    @Param({ "START", "MIDDLE", "JUMPS" })
+    public Position position;
+
+    /** Set up the board for POSITION and choose a legal move on it. */
+    @Setup
+    public void setup() {
+        _board = position.board();
+        _target = new Board();
+        _move = _board.getMoves().get(0);
+        _encoded = Board.encode(_move);
+    }
+
+    /** Generate all moves as Moves. */
+    @Benchmark
+    public ArrayList<Move> getMoves() {
+        return _board.getMoves();
+    }
+
+    /** Generate all legal moves in encoded form. */
+    @Benchmark
+    public int getEncodedMoves() {
+        return _board.getMoves(_encodedMoves);
+    }
+
+    /** Check the legality of a legal move. */
+    @Benchmark
+    public boolean legalMove() {
+        return _board.legalMove(_move);
+    }
+
+    /** Make and undo a Move. */
+    @Benchmark
+    public long makeUndo() {
+        _board.makeMove(_move);
+        _board.undo();
+        return _board.key();
+    }
+
+    /** Make and undo an encoded move. */
+    @Benchmark
+    public long makeUndoEncoded() {
+        _board.makeMove(_encoded);
+        _board.undo();
+        return _board.key();
+    }
+
+    /** Copy the board. */
+    @Benchmark
+    public Board copy() {
+        _target.copy(_board);
+        return _target;
+    }
+
+    /** The board in POSITION. */
+    private Board _board;
+    /** Destination of copies. */
+    private Board _target;
+    /** A legal move on _board. */
+    private Move _move;
+    /** The encoding of _move. */
+    private long _encoded;
+    /** Buffer for encoded moves. */
+    private final long[] _encodedMoves = new long[Board.MAX_MOVES];
+}
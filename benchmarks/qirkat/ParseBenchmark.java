@@ -0,0 +1,48 @@
+package qirkat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of parsing moves and commands.
+ *  @author Chelsea Chen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    /** The text parsed: a single move, a long multi-jump, or a
+     *  command that is tried against several patterns first. */
+    @Param({ "c2-c3", "e5-c3-c5-a3-a5-c5-e5",
+             "set white bww-w ---ww ----w bbb-b -bbbb" })
+    public String text;
+
+    /** Parse TEXT as a command. */
+    @Benchmark
+    public Command parseCommand() {
+        return Command.parseCommand(text);
+    }
+
+    /** Parse TEXT as a move, if it is one. */
+    @Benchmark
+    public Move parseMove() {
+        try {
+            return Move.parseMove(text);
+        } catch (IllegalArgumentException excp) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package qirkat;
+
+/** The positions over which the benchmarks are run.
+ *  @author Chelsea Chen
+ */
+public enum Position {
+
+    /** The initial position. */
+    START(null, PieceColor.WHITE),
+    /** A middlegame position with no captures available. */
+    MIDDLE("bww-w ---ww ----w bbb-b -bbbb", PieceColor.WHITE),
+    /** A position in which White has many long multi-jumps. */
+    JUMPS("-wwww -ww-- ----w bbbb- -b-bw", PieceColor.WHITE);
+
+    /** A position described by PIECES, as for Board.setPieces, with
+     *  NEXTMOVE to move, or the initial position if PIECES is null. */
+    Position(String pieces, PieceColor nextMove) {
+        _pieces = pieces;
+        _nextMove = nextMove;
+    }
+
+    /** Return a new Board set up in this position. */
+    Board board() {
+        Board result = new Board();
+        if (_pieces != null) {
+            result.setPieces(_pieces, _nextMove);
+        }
+        return result;
+    }
+
+    /** Board.setPieces description of this position, or null for the
+     *  initial position. */
+    private final String _pieces;
+    /** The player to move. */
+    private final PieceColor _nextMove;
+}
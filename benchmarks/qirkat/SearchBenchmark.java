@@ -0,0 +1,70 @@
+package qirkat;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of fixed-depth AI searches.  Each search starts from an
+ *  empty transposition table, so that every invocation does the same
+ *  work.
+ *  @author Chelsea Chen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    /** The position searched. */
+    @Param({ "START", "MIDDLE", "JUMPS" })
+    public Position position;
+
+    /** The depth of the search. */
+    @Param({ "6", "8" })
+    public int depth;
+
+    /** The Evaluator used: "weighted" for WeightedEvaluator.DEFAULT, or
+     *  "material" for a MaterialEvaluator. */
+    @Param({ "weighted", "material" })
+    public String evaluator;
+
+    /** Set up the board for POSITION and an AI to move on it. */
+    @Setup
+    public void setup() {
+        _board = position.board();
+        Game game = new Game(new Board(),
+                             new ReaderSource(new StringReader(""), false),
+                             new TextReporter());
+        Evaluator eval;
+        if (evaluator.equals("material")) {
+            eval = new MaterialEvaluator();
+        } else {
+            eval = WeightedEvaluator.DEFAULT;
+        }
+        _ai = new AI(game, _board.whoseMove(), eval);
+    }
+
+    /** Search to DEPTH. */
+    @Benchmark
+    public Move search() {
+        return _ai.findMove(_board, depth);
+    }
+
+    /** The position searched. */
+    private Board _board;
+    /** The AI doing the searching. */
+    private AI _ai;
+}
@@ -1,8 +1,9 @@
 package qirkat;
 
-import java.util.ArrayList;
-
 import static qirkat.PieceColor.*;
+import static qirkat.Move.SIDE;
+import static qirkat.TranspositionTable.*;
+import static qirkat.TranspositionTable.Replacement.*;
 
 /** A Player that computes its own moves.
  *  @author Chelsea Chen
@@ -11,8 +12,15 @@ class AI extends Player {
 
     /**
      * Maximum minimax search depth before going to static evaluation.
+     * In practice, the time limit stops the search well before this.
+     */
+    private static final int MAX_DEPTH = 32;
+
+    /**
+     * One less than the number of nodes searched between checks of the
+     * clock.  Must be one less than a power of 2.
      */
-    private static final int MAX_DEPTH = 8;
+    private static final int CLOCK_CHECK_MASK = (1 << 10) - 1;
 
     /**
      * A position magnitude indicating a win (for white if positive, black
@@ -26,100 +34,842 @@ class AI extends Player {
     private static final int INFTY = Integer.MAX_VALUE;
 
     /**
-     * A new AI for GAME that will play MYCOLOR.
+     * A new AI for GAME that will play MYCOLOR, scoring positions with
+     * WeightedEvaluator.DEFAULT.
      */
     AI(Game game, PieceColor myColor) {
+        this(game, myColor, WeightedEvaluator.DEFAULT);
+    }
+
+    /**
+     * A new AI for GAME that will play MYCOLOR, scoring positions with
+     * EVALUATOR.
+     */
+    AI(Game game, PieceColor myColor, Evaluator evaluator) {
         super(game, myColor);
+        _evaluator = evaluator;
+        _aspirationWindow = Math.max(1, evaluator.pieceValue() / 2);
+    }
+
+    /** Return the half-width of the window around the previous
+     *  iteration's value within which my searches first look: half the
+     *  value of a piece under my Evaluator, so that a swing of a whole
+     *  piece always forces a re-search. */
+    int aspirationWindow() {
+        return _aspirationWindow;
     }
 
     @Override
     Move myMove() {
         Main.startTiming();
-        Move move = findMove();
+        Move move = null;
+        OpeningBook book = game().openingBook();
+        if (book != null) {
+            move = book.choose(board(), game());
+        }
+        if (move == null) {
+            move = findMove();
+        }
         Main.endTiming();
         return move;
     }
 
     /**
      * Return a move for me from the current position, assuming there
-     * is a move.
+     * is a move, searching with the time and threads the game allows.
      */
     private Move findMove() {
-        Board b = new Board(board());
-        if (myColor() == b.whoseMove()) {
-            findMove(b, MAX_DEPTH, true, 1, -INFTY, INFTY);
-        } else {
-            findMove(b, MAX_DEPTH, true, -1, -INFTY, INFTY);
+        return findMove(new Board(board()), MAX_DEPTH, game().timeLimit(),
+                        game().threads());
+    }
+
+    /**
+     * Return a move for me from position B, searching exactly DEPTH
+     * plies on one thread with no time limit, starting from an empty
+     * transposition table.  Used for benchmarking, where the work done
+     * must not depend on the speed of the machine or on earlier calls.
+     */
+    Move findMove(Board b, int depth) {
+        if (_table != null) {
+            _table.clear();
+        }
+        return findMove(new Board(b), depth, Long.MAX_VALUE / 1_000_000L, 1);
+    }
+
+    /**
+     * Return the value to me of position B, as found by a search of
+     * exactly DEPTH plies on one thread with no time limit, or by my
+     * static evaluation if DEPTH is 0.  Used to build opening books.
+     */
+    int searchValue(Board b, int depth) {
+        if (depth == 0) {
+            return staticScore(b);
+        }
+        startSearch(Long.MAX_VALUE / 1_000_000L);
+        Search search = new Search(b, 1, depth);
+        search.run();
+        return search.value();
+    }
+
+    /**
+     * Prepare for a search that may take up to TIMELIMIT milliseconds.
+     */
+    private void startSearch(long timeLimit) {
+        if (_table == null) {
+            _table = new TranspositionTable(TABLE_LOG_SIZE,
+                                            DEPTH_PREFERRED);
         }
-        return _lastFoundMove;
+        _table.newSearch();
+        _deadline = System.nanoTime() + timeLimit * 1_000_000L;
+        _stopped = false;
+        _tablebase = game().tablebase();
     }
 
     /**
-     * The move found by the last call to one of the ...FindMove methods
-     * below.
+     * Return a move for me from position B, searching to at most
+     * MAXDEPTH plies within TIMELIMIT milliseconds, using NTHREADS
+     * threads.  If I have been pondering B, the search already under
+     * way continues instead, and stops TIMELIMIT milliseconds after it
+     * started.
      */
-    private Move _lastFoundMove;
+    private Move findMove(Board b, int maxDepth, long timeLimit,
+                          int nthreads) {
+        long[] legal = new long[Board.MAX_MOVES];
+        int numLegal = b.getMoves(legal);
+        ParallelSearch search = ponderHit(b, timeLimit);
+        if (search == null) {
+            startSearch(timeLimit);
+            if (numLegal == 1) {
+                return b.decode(legal[0]);
+            }
+            if (_tablebase != null && _tablebase.probe(b) != 0) {
+                return b.decode(tablebaseMove(b, legal, numLegal));
+            }
+            search = new ParallelSearch(b, maxDepth, nthreads);
+            search.run();
+        }
+        search.report();
+
+        long best = search.bestMove();
+        if (best == 0 && numLegal > 0) {
+            best = legal[0];
+        }
+        return best == 0 ? null : b.decode(best);
+    }
 
     /**
-     * Find a move from position BOARD and return its value, recording
-     * the move found in _lastFoundMove iff SAVEMOVE. The move
-     * should have maximal value or have value > BETA if SENSE==1,
-     * and minimal value or value < ALPHA if SENSE==-1. Searches up to
-     * DEPTH levels.  Searching at level 0 simply returns a static estimate
-     * of the board value and does not set _lastMoveFound.
+     * Start searching, in the background, the position that will follow
+     * the reply I predict to the move just made on the game's board, so
+     * that if the opponent makes that reply, my next search is already
+     * well under way.  The predicted reply is the opponent's move in my
+     * principal variation.  Does nothing if there is no prediction or if
+     * I would not search the resulting position anyway.
      */
-    private int findMove(Board board, int depth, boolean saveMove, int sense,
-                         int alpha, int beta) {
+    void ponder() {
+        stopPondering();
+        Board b = new Board(board());
+        if (b.gameOver() || _table == null) {
+            return;
+        }
+        long[] legal = new long[Board.MAX_MOVES];
+        int numLegal = b.getMoves(legal);
+        long reply = numLegal == 1 ? legal[0] : _table.move(b.key());
+        int i;
+        for (i = 0; i < numLegal && legal[i] != reply; i += 1) {
+            continue;
+        }
+        if (i == numLegal) {
+            return;
+        }
+        b.makeMove(reply);
+        if (b.gameOver() || b.getMoves(legal) == 1) {
+            return;
+        }
+        startSearch(Long.MAX_VALUE / 1_000_000L);
+        if (_tablebase != null && _tablebase.probe(b) != 0) {
+            return;
+        }
+        _ponder = new ParallelSearch(b, MAX_DEPTH, game().threads());
+        _ponderThread = new Thread(_ponder::run);
+        _ponderThread.setDaemon(true);
+        _ponderThread.start();
+    }
+
+    /** Return the position I am pondering, or null if I am not
+     *  pondering. */
+    Board ponderPosition() {
+        return _ponder == null ? null : _ponder.position();
+    }
+
+    @Override
+    void stopPondering() {
+        if (_ponder != null) {
+            _stopped = true;
+            waitForPonder();
+        }
+    }
+
+    /** If I am pondering position B (a ponder hit), wait until
+     *  TIMELIMIT milliseconds after the pondering began for it to finish,
+     *  and return the search.  Otherwise (a ponder miss), stop any
+     *  pondering and return null. */
+    private ParallelSearch ponderHit(Board b, long timeLimit) {
+        if (_ponder == null) {
+            return null;
+        }
+        ParallelSearch search = _ponder;
+        if (search.position().key() != b.key()) {
+            stopPondering();
+            return null;
+        }
+        _deadline = search.startTime() + timeLimit * 1_000_000L;
+        waitForPonder();
+        search.setPonderHit();
+        return search;
+    }
+
+    /** Wait for the pondering thread to finish, and then record that I am
+     *  no longer pondering. */
+    private void waitForPonder() {
+        try {
+            _ponderThread.join();
+        } catch (InterruptedException excp) {
+            /* Ignore InterruptedException */
+        }
+        _ponder = null;
+        _ponderThread = null;
+    }
+
+    /** Return the best of the NUMLEGAL > 0 encoded moves in LEGAL from
+     *  position B, which _tablebase covers: the quickest win, or failing
+     *  that, the slowest loss. */
+    private long tablebaseMove(Board b, long[] legal, int numLegal) {
+        long best = legal[0];
+        int bestScore = -INFTY;
+        for (int i = 0; i < numLegal; i += 1) {
+            b.makeMove(legal[i]);
+            int score = b.gameOver() ? INFTY
+                : tablebaseScore(b, _tablebase.probe(b));
+            b.undo();
+            if (score > bestScore) {
+                best = legal[i];
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /** Return the value to me of BOARD, whose tablebase entry is
+     *  ENTRY != 0.  Wins are worth less than WINNING_VALUE by their
+     *  distance, so that nearer wins and farther losses are preferred. */
+    private int tablebaseScore(Board board, int entry) {
+        if (entry == Tablebase.DRAW) {
+            return 0;
+        }
+        int value = WINNING_VALUE - Tablebase.distance(entry);
+        if (Tablebase.isWin(entry) == (board.whoseMove() == myColor())) {
+            return value;
+        } else {
+            return -value;
+        }
+    }
+
+    /** Return the text of the principal variation from position B: up to
+     *  DEPTH moves, separated by blanks, found by following the best
+     *  moves recorded in the transposition table for as long as they are
+     *  legal. */
+    private String principalVariation(Board b, int depth) {
+        Board board = new Board(b);
+        long[] moves = new long[Board.MAX_MOVES];
+        StringBuilder result = new StringBuilder();
+        for (int ply = 0; ply < depth; ply += 1) {
+            long mov = _table.move(board.key());
+            int n = board.getMoves(moves);
+            int i;
+            for (i = 0; i < n && moves[i] != mov; i += 1) {
+                continue;
+            }
+            if (mov == 0 || i == n) {
+                break;
+            }
+            if (ply > 0) {
+                result.append(' ');
+            }
+            result.append(board.decode(mov));
+            board.makeMove(mov);
+        }
+        return result.toString();
+    }
+
+    /** A search for my move from one position by a main Search on the
+     *  thread that runs it and, when more than one thread is called
+     *  for, helper Searches on threads of their own.  The helpers search
+     *  the same position concurrently, sharing the transposition table,
+     *  so that the main search finds more of its positions already
+     *  evaluated. */
+    private class ParallelSearch {
+
+        /** A search from position BOARD (which it copies) to at most
+         *  MAXDEPTH plies, using NTHREADS threads. */
+        ParallelSearch(Board board, int maxDepth, int nthreads) {
+            _position = new Board(board);
+            _start = System.nanoTime();
+            _main = new Search(board, 1, maxDepth);
+            _helpers = new Search[nthreads - 1];
+            for (int i = 0; i < _helpers.length; i += 1) {
+                _helpers[i] = new Search(board, 2 + i % 2, maxDepth);
+            }
+        }
+
+        /** Run the main search on the current thread and the helpers on
+         *  new ones, until the main search finishes. */
+        void run() {
+            Thread[] threads = new Thread[_helpers.length];
+            for (int i = 0; i < threads.length; i += 1) {
+                threads[i] = new Thread(_helpers[i]::run);
+                threads[i].setDaemon(true);
+                threads[i].start();
+            }
+            _main.run();
+            _stopped = true;
+            for (Thread helper : threads) {
+                try {
+                    helper.join();
+                } catch (InterruptedException excp) {
+                    /* Ignore InterruptedException */
+                }
+            }
+            _nanos = System.nanoTime() - _start;
+        }
 
+        /** Return the position searched. */
+        Board position() {
+            return _position;
+        }
+
+        /** Return the value of System.nanoTime() when I was created. */
+        long startTime() {
+            return _start;
+        }
 
-        if (depth == 0 || board.gameOver()) {
-            return staticScore(board);
+        /** Record that I was started by pondering and then used. */
+        void setPonderHit() {
+            _ponderHit = true;
         }
-        ArrayList<Board> childBoards = new ArrayList<>();
 
-        for (Move mov : board.getMoves()) {
-            if (mov != null && board.legalMove(mov)) {
-                Board child = new Board();
-                child.copy(board);
-                child.makeMove(mov);
-                childBoards.add(child);
+        /** Return the encoded best move found by the main search, or 0
+         *  if there was none. */
+        long bestMove() {
+            return _main.bestMove();
+        }
+
+        /** Report the depth reached and, if wanted, my statistics, after
+         *  I have run. */
+        void report() {
+            int depth = _main.depthReached();
+            Main.reportSearch(depth, _main.timeToDepth(),
+                              _helpers.length + 1);
+            if (Main.collectingStats()) {
+                SearchStats stats = new SearchStats();
+                _main.addStats(stats);
+                for (Search helper : _helpers) {
+                    helper.addStats(stats);
+                }
+                stats.endSearch(depth, _nanos);
+                game().reportStats("[%s: %s, pv %s%s]", myColor(), stats,
+                                   principalVariation(_position, depth),
+                                   _ponderHit ? ", ponder hit" : "");
+                Main.recordStats(stats);
             }
         }
-        if (sense == 1) {
-            int v = -INFTY;
-            for (Board c : childBoards) {
-                v = Math.max(v, findMove(c, depth - 1, false, -1, alpha, beta));
-                alpha = Math.max(alpha, v);
+
+        /** The position searched. */
+        private final Board _position;
+        /** Value of System.nanoTime() when I was created. */
+        private final long _start;
+        /** Elapsed time of run(), in nanoseconds. */
+        private long _nanos;
+        /** The search whose result is used. */
+        private final Search _main;
+        /** The searches run by helper threads. */
+        private final Search[] _helpers;
+        /** True iff I was started by pondering and then used. */
+        private boolean _ponderHit;
+    }
+
+    /** One thread's share of a search for my next move.  Each Search
+     *  has its own copy of the board and its own move lists, and shares
+     *  only _table, _deadline, and _stopped with the others.  Moves are
+     *  handled in the encoded form described in Board. */
+    private class Search {
+
+        /** A search from position BOARD (which it copies) by iterative
+         *  deepening from depth FIRSTDEPTH to at most LASTDEPTH. */
+        Search(Board board, int firstDepth, int lastDepth) {
+            _board = new Board(board);
+            _firstDepth = firstDepth;
+            _lastDepth = lastDepth;
+            _start = System.nanoTime();
+        }
+
+        /** Search by iterative deepening until time runs out, the game's
+         *  outcome is known, my last depth is reached, or another thread
+         *  sets _stopped. */
+        void run() {
+            long allocated = SearchStats.allocatedBytes();
+            int sense = myColor() == _board.whoseMove() ? 1 : -1;
+            int value = 0;
+            for (int depth = _firstDepth; depth <= _lastDepth; depth += 1) {
+                _iterationDepth = depth;
+                value = aspirationSearch(depth, sense, value,
+                                         depth > _firstDepth);
+                if (_stopped) {
+                    break;
+                }
+                _bestMove = _lastFoundMove;
+                _value = value;
+                _depthReached = depth;
+                _timeToDepth = System.nanoTime() - _start;
+                if (value == INFTY || value == -INFTY) {
+                    break;
+                }
+            }
+            if (allocated >= 0) {
+                _allocated = SearchStats.allocatedBytes() - allocated;
+            }
+        }
+
+        /** Search to depth DEPTH from my board, as for findMove with
+         *  SAVEMOVE true, and return the value found.  If NARROW, first
+         *  search within aspirationWindow() of GUESS, the value from the
+         *  previous iteration, re-searching with the window opened on
+         *  the side on which the value falls outside it. */
+        private int aspirationSearch(int depth, int sense, int guess,
+                                     boolean narrow) {
+            int alpha = -INFTY, beta = INFTY;
+            if (narrow) {
+                alpha = (int) Math.max(-INFTY,
+                                       (long) guess - _aspirationWindow);
+                beta = (int) Math.min(INFTY,
+                                      (long) guess + _aspirationWindow);
+            }
+            while (true) {
+                _lastFoundMove = 0;
+                int value = findMove(depth, true, sense, alpha, beta);
+                if (_stopped) {
+                    return value;
+                } else if (value <= alpha && alpha > -INFTY) {
+                    alpha = -INFTY;
+                } else if (value >= beta && beta < INFTY) {
+                    beta = INFTY;
+                } else {
+                    return value;
+                }
+            }
+        }
+
+        /** Return the encoded best move found by the deepest completed
+         *  iteration of run(), or 0 if there was none. */
+        long bestMove() {
+            return _bestMove;
+        }
+
+        /** Return the value found by the deepest completed iteration of
+         *  run(), or 0 if there was none. */
+        int value() {
+            return _value;
+        }
+
+        /** Return the depth of the deepest completed iteration. */
+        int depthReached() {
+            return _depthReached;
+        }
+
+        /** Return the time in nanoseconds from my creation to the end of
+         *  the deepest completed iteration. */
+        long timeToDepth() {
+            return _timeToDepth;
+        }
+
+        /**
+         * Find a move from my board and return its value, recording
+         * the move found in _lastFoundMove iff SAVEMOVE. The move
+         * should have maximal value or have value > BETA if SENSE==1,
+         * and minimal value or value < ALPHA if SENSE==-1. Searches up to
+         * DEPTH levels.  Searching at level 0 simply returns a static
+         * estimate of the board value and does not set _lastMoveFound.
+         * Children are searched by making and undoing each move on the
+         * board itself, which is left unchanged on return.  Each position
+         * searched is looked up in and recorded in the transposition
+         * table.  Moves are searched in the order given by orderMoves.
+         * After the first, each move is searched with a null window to
+         * test whether it can beat the best so far, and searched again
+         * with the full window only if it can (principal variation
+         * search).  At depth 0, any forced capture sequence is played out
+         * by quiesce before the position is scored.  Once the time
+         * allotted to this move has run out, sets _stopped and returns a
+         * meaningless value without recording anything.
+         */
+        private int findMove(int depth, boolean saveMove, int sense,
+                             int alpha, int beta) {
+            Board board = _board;
+            if (!countNode()) {
+                return 0;
+            }
+            if (board.gameOver()) {
+                _leaves += 1;
+                return staticScore(board);
+            }
+            if (_tablebase != null && !saveMove) {
+                int entry = _tablebase.probe(board);
+                if (entry != 0) {
+                    _leaves += 1;
+                    return tablebaseScore(board, entry);
+                }
+            }
+            if (depth == 0) {
+                _quiescenceBudget = QUIESCENCE_NODES;
+                return quiesce(0, sense, alpha, beta);
+            }
+            long key = board.key();
+            long entry = _table.probe(key);
+            long hashMove = 0;
+            _probes += 1;
+            if (entry != 0) {
+                _hits += 1;
+                hashMove = _table.move(key);
+                if (!saveMove && depth(entry) >= depth) {
+                    int score = score(entry);
+                    switch (bound(entry)) {
+                    case EXACT:
+                        return score;
+                    case LOWER:
+                        alpha = Math.max(alpha, score);
+                        break;
+                    default:
+                        beta = Math.min(beta, score);
+                        break;
+                    }
+                    if (beta <= alpha) {
+                        return score;
+                    }
+                }
+            }
+            int alpha0 = alpha, beta0 = beta;
+
+            long[] moves = _moveLists[depth];
+            int[] scores = _moveScores[depth];
+            int n = board.getMoves(moves);
+            _interior += 1;
+            int ply = _iterationDepth - depth;
+            orderMoves(moves, scores, n, hashMove, ply);
+
+            int best = sense == 1 ? -INFTY : INFTY;
+            long bestMove = 0;
+            for (int i = 0; i < n; i += 1) {
+                long mov = nextMove(moves, scores, i, n);
+                board.makeMove(mov);
+                _children += 1;
+                int v;
+                if (i == 0) {
+                    v = findMove(depth - 1, false, -sense, alpha, beta);
+                } else if (sense == 1) {
+                    v = findMove(depth - 1, false, -sense, alpha, alpha + 1);
+                    if (v > alpha && v < beta && !_stopped) {
+                        v = findMove(depth - 1, false, -sense, alpha, beta);
+                    }
+                } else {
+                    v = findMove(depth - 1, false, -sense, beta - 1, beta);
+                    if (v < beta && v > alpha && !_stopped) {
+                        v = findMove(depth - 1, false, -sense, alpha, beta);
+                    }
+                }
+                board.undo();
+                if (_stopped) {
+                    return 0;
+                }
+                if (bestMove == 0
+                    || (sense == 1 && v > best)
+                    || (sense == -1 && v < best)) {
+                    best = v;
+                    bestMove = mov;
+                }
+                if (sense == 1) {
+                    alpha = Math.max(alpha, best);
+                } else {
+                    beta = Math.min(beta, best);
+                }
                 if (beta <= alpha) {
-                    if (saveMove) {
-                        _lastFoundMove = c.getStack().pop();
+                    _cutoffs += 1;
+                    if (i == 0) {
+                        _firstMoveCutoffs += 1;
+                    }
+                    if (Board.moveCaptures(mov) == 0) {
+                        recordQuietCutoff(mov, depth, ply);
                     }
                     break;
                 }
-                if (saveMove) {
-                    _lastFoundMove = c.getStack().pop();
-                }
             }
-            return v;
-        } else {
-            int v = INFTY;
-            for (Board c2 : childBoards) {
-                v = Math.min(v, findMove(c2, depth - 1, false, 1, alpha, beta));
-                beta = Math.min(beta, v);
+            if (saveMove) {
+                _lastFoundMove = bestMove;
+            }
+            int bound =
+                best <= alpha0 ? UPPER : best >= beta0 ? LOWER : EXACT;
+            _table.store(key, depth, bound, best, bestMove);
+            return best;
+        }
+
+        /** Return the value of my board, which is PLY plies past the
+         *  horizon of the main search, as for findMove, except that only
+         *  capture sequences are searched.  Since captures are forced, a
+         *  position in which the player to move can capture is never
+         *  scored statically, unless _quiescenceBudget, which this
+         *  decrements for each position it expands, has run out. */
+        private int quiesce(int ply, int sense, int alpha, int beta) {
+            Board board = _board;
+            if (ply > 0 && !countNode()) {
+                return 0;
+            }
+            if (board.gameOver() || _quiescenceBudget <= 0
+                || !board.jumpPossible()) {
+                _leaves += 1;
+                return staticScore(board);
+            }
+            _quiescenceBudget -= 1;
+            long[] moves = _quiescenceMoves[ply];
+            int[] scores = _quiescenceScores[ply];
+            int n = board.getMoves(moves);
+            _interior += 1;
+            for (int i = 0; i < n; i += 1) {
+                scores[i] = Integer.bitCount(Board.moveCaptures(moves[i]));
+            }
+
+            int best = sense == 1 ? -INFTY : INFTY;
+            for (int i = 0; i < n; i += 1) {
+                long mov = nextMove(moves, scores, i, n);
+                board.makeMove(mov);
+                _children += 1;
+                int v = quiesce(ply + 1, -sense, alpha, beta);
+                board.undo();
+                if (_stopped) {
+                    return 0;
+                }
+                if (sense == 1) {
+                    best = Math.max(best, v);
+                    alpha = Math.max(alpha, best);
+                } else {
+                    best = Math.min(best, v);
+                    beta = Math.min(beta, best);
+                }
                 if (beta <= alpha) {
-                    if (saveMove) {
-                        _lastFoundMove = c2.getStack().pop();
+                    _cutoffs += 1;
+                    if (i == 0) {
+                        _firstMoveCutoffs += 1;
                     }
                     break;
                 }
-                if (saveMove) {
-                    _lastFoundMove = c2.getStack().pop();
+            }
+            return best;
+        }
+
+        /** Count a visit to a node, checking the clock periodically.
+         *  Return false iff the search has been stopped. */
+        private boolean countNode() {
+            _nodes += 1;
+            if ((_nodes & CLOCK_CHECK_MASK) == 0
+                && System.nanoTime() - _deadline > 0) {
+                _stopped = true;
+            }
+            return !_stopped;
+        }
+
+        /** Set SCORES[0 .. N-1] to the priorities with which the encoded
+         *  moves MOVES[0 .. N-1] at a node PLY plies from the root should
+         *  be searched: first HASHMOVE, the transposition table's best
+         *  move; then captures, longest first; then my killer moves for
+         *  PLY; and then other quiet moves by their history scores. */
+        private void orderMoves(long[] moves, int[] scores, int n,
+                                long hashMove, int ply) {
+            long[] killers = _killers[ply];
+            for (int i = 0; i < n; i += 1) {
+                long mov = moves[i];
+                int captures = Board.moveCaptures(mov);
+                if (mov == hashMove) {
+                    scores[i] = HASH_MOVE_PRIORITY;
+                } else if (captures != 0) {
+                    scores[i] = CAPTURE_PRIORITY + Integer.bitCount(captures);
+                } else if (mov == killers[0]) {
+                    scores[i] = KILLER_PRIORITY;
+                } else if (mov == killers[1]) {
+                    scores[i] = KILLER_PRIORITY - 1;
+                } else {
+                    scores[i] =
+                        _history[Board.moveFrom(mov)][Board.moveTo(mov)];
+                }
+            }
+        }
+
+        /** Move the highest-priority move among MOVES[I .. N-1] to
+         *  MOVES[I], swapping SCORES to match, and return it.  Moves are
+         *  thus sorted only as far as they are searched. */
+        private long nextMove(long[] moves, int[] scores, int i, int n) {
+            int best = i;
+            for (int j = i + 1; j < n; j += 1) {
+                if (scores[j] > scores[best]) {
+                    best = j;
+                }
+            }
+            long mov = moves[best];
+            int score = scores[best];
+            moves[best] = moves[i];
+            scores[best] = scores[i];
+            moves[i] = mov;
+            scores[i] = score;
+            return mov;
+        }
+
+        /** Record that the non-capturing encoded move MOV caused a cutoff
+         *  in a search of depth DEPTH at PLY plies from the root. */
+        private void recordQuietCutoff(long mov, int depth, int ply) {
+            long[] killers = _killers[ply];
+            if (killers[0] != mov) {
+                killers[1] = killers[0];
+                killers[0] = mov;
+            }
+            int[] history = _history[Board.moveFrom(mov)];
+            int to = Board.moveTo(mov);
+            history[to] += depth * depth;
+            if (history[to] > MAX_HISTORY) {
+                for (int[] row : _history) {
+                    for (int k = 0; k < row.length; k += 1) {
+                        row[k] /= 2;
+                    }
                 }
             }
-            return v;
         }
+
+        /** Add my counts to STATS. */
+        void addStats(SearchStats stats) {
+            stats.add(_nodes, _leaves, _interior, _children, _cutoffs,
+                      _firstMoveCutoffs, _probes, _hits, _allocated);
+        }
+
+        /** My private copy of the position being searched. */
+        private final Board _board;
+
+        /** Depths of my first and last iterations. */
+        private final int _firstDepth, _lastDepth;
+
+        /** Value of System.nanoTime() when I was created. */
+        private final long _start;
+
+        /** Move lists for each search depth, reused from one node to the
+         *  next. */
+        private final long[][] _moveLists =
+            new long[MAX_DEPTH + 1][Board.MAX_MOVES];
+
+        /** Search priorities of the moves in _moveLists. */
+        private final int[][] _moveScores =
+            new int[MAX_DEPTH + 1][Board.MAX_MOVES];
+
+        /** Move lists and priorities for each ply of quiesce.  Each ply
+         *  captures at least one piece, so there can be no more plies
+         *  than squares. */
+        private final long[][] _quiescenceMoves =
+            new long[SIDE * SIDE][Board.MAX_MOVES];
+        /** See _quiescenceMoves. */
+        private final int[][] _quiescenceScores =
+            new int[SIDE * SIDE][Board.MAX_MOVES];
+
+        /** Number of positions the current call to quiesce from the
+         *  horizon may still expand. */
+        private int _quiescenceBudget;
+
+        /** Up to two recent non-capturing moves that caused cutoffs at
+         *  each ply, most recent first. */
+        private final long[][] _killers = new long[MAX_DEPTH + 1][2];
+
+        /** _history[f][t] increases with the number and depth of the
+         *  cutoffs caused by non-capturing moves from square F to
+         *  square T. */
+        private final int[][] _history = new int[SIDE * SIDE][SIDE * SIDE];
+
+        /** Depth of the current iteration. */
+        private int _iterationDepth;
+
+        /** The move found by the last call to findMove with SAVEMOVE. */
+        private long _lastFoundMove;
+
+        /** Results of the deepest completed iteration. */
+        private long _bestMove;
+        /** See _bestMove. */
+        private int _value;
+        /** See _bestMove. */
+        private int _depthReached;
+        /** See _bestMove. */
+        private long _timeToDepth;
+
+        /** Number of nodes I have visited, of those evaluated
+         *  statically, and of those whose moves I generated. */
+        private long _nodes, _leaves, _interior;
+
+        /** Number of moves made from interior nodes. */
+        private long _children;
+
+        /** Number of transposition table probes, and of those that found
+         *  an entry. */
+        private long _probes, _hits;
+
+        /** Bytes allocated by run(), or -1 if unknown. */
+        private long _allocated = -1;
+
+        /** Number of cutoffs, and of those caused by the first move
+         *  searched. */
+        private long _cutoffs, _firstMoveCutoffs;
     }
 
+    /** Maximum number of positions expanded by quiesce below a single
+     *  position at the horizon of the main search. */
+    private static final int QUIESCENCE_NODES = 1 << 10;
+
+    /** Search priorities assigned by orderMoves.  History scores are kept
+     *  below MAX_HISTORY. */
+    private static final int
+        HASH_MOVE_PRIORITY = Integer.MAX_VALUE,
+        CAPTURE_PRIORITY = 1 << 30,
+        KILLER_PRIORITY = 1 << 29,
+        MAX_HISTORY = 1 << 28;
+
+    /** The value of System.nanoTime() after which the current search
+     *  must stop.  Changed while pondering on a ponder hit. */
+    private volatile long _deadline;
+
+    /** True iff the current search has been stopped, either by the clock
+     *  or because the main search has finished. */
+    private volatile boolean _stopped;
+
+    /** The search I am running in the background while pondering, and
+     *  the thread running it, or null if I am not pondering. */
+    private ParallelSearch _ponder;
+    /** See _ponder. */
+    private Thread _ponderThread;
+
+    /** Scores the positions at the leaves of my searches. */
+    private final Evaluator _evaluator;
+    /** Half-width of my aspiration windows (see aspirationWindow). */
+    private final int _aspirationWindow;
+
+    /** Endgame tablebase for the current search, or null if none. */
+    private Tablebase _tablebase;
+
+    /** Base-2 logarithm of the number of slots in _table. */
+    private static final int TABLE_LOG_SIZE = 18;
+
+    /** Results of earlier searches, kept from move to move and shared
+     *  among the threads of a search.  Scores are from my point of view.
+     *  Created on first use, since many AIs are created and discarded
+     *  without ever moving. */
+    private TranspositionTable _table;
 
     /**
      * Return a heuristic value for BOARD.
@@ -133,15 +883,7 @@ class AI extends Player {
                 return -INFTY;
             }
         } else {
-            int score = 0;
-            for (int i = 0; i < board.getnewBoard().length; i++) {
-                if (board.getnewBoard()[i].equals(myColor())) {
-                    score++;
-                } else {
-                    score--;
-                }
-            }
-            return score;
+            return _evaluator.evaluate(board, myColor());
         }
     }
 }
@@ -0,0 +1,100 @@
+package qirkat;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of AI players.
+ *  @author Chelsea Chen
+ */
+public class AITest {
+
+    /** A position with White to move in which both sides have several
+     *  quiet moves. */
+    private static final String POSITION =
+        "wwwww ----- ----- ----- bbbbb";
+
+    /** Return a new Game in POSITION, allowing each AI move 100 msec. */
+    private static Game game() {
+        Game game = new Game(new Board(),
+                             new ReaderSource(new StringReader(""), false),
+                             new TextReporter());
+        game.doSet(new String[] { "white", POSITION });
+        game.doTime(new String[] { "100" });
+        return game;
+    }
+
+    /** Have AI, playing in GAME, make a move, and return the position it
+     *  then ponders, which must exist. */
+    private static Board moveAndPonder(Game game, AI ai) {
+        Move mov = ai.myMove();
+        assertTrue(game.board().legalMove(mov));
+        game.doMove(new String[] { mov.toString() });
+        ai.ponder();
+        Board pondered = ai.ponderPosition();
+        assertNotNull(pondered);
+        return pondered;
+    }
+
+    /** Return a legal move in GAME that leads to the position PONDERED
+     *  if HIT, and to a different position otherwise. */
+    private static Move reply(Game game, Board pondered, boolean hit) {
+        Board b = new Board(game.board());
+        long[] moves = new long[Board.MAX_MOVES];
+        int n = b.getMoves(moves);
+        for (int i = 0; i < n; i += 1) {
+            b.makeMove(moves[i]);
+            boolean same = b.key() == pondered.key();
+            b.undo();
+            if (same == hit) {
+                return b.decode(moves[i]);
+            }
+        }
+        fail("no suitable reply");
+        return null;
+    }
+
+    @Test
+    public void testPonderHit() {
+        Game game = game();
+        AI ai = new AI(game, PieceColor.WHITE);
+        Board pondered = moveAndPonder(game, ai);
+        game.doMove(new String[] { reply(game, pondered, true).toString() });
+        Move mov = ai.myMove();
+        assertNull(ai.ponderPosition());
+        assertTrue(game.board().legalMove(mov));
+    }
+
+    @Test
+    public void testPonderMiss() {
+        Game game = game();
+        AI ai = new AI(game, PieceColor.WHITE);
+        Board pondered = moveAndPonder(game, ai);
+        game.doMove(new String[] { reply(game, pondered, false).toString() });
+        Move mov = ai.myMove();
+        assertNull(ai.ponderPosition());
+        assertTrue(game.board().legalMove(mov));
+    }
+
+    @Test
+    public void testStopPondering() {
+        Game game = game();
+        AI ai = new AI(game, PieceColor.WHITE);
+        moveAndPonder(game, ai);
+        ai.stopPondering();
+        assertNull(ai.ponderPosition());
+    }
+
+    @Test
+    public void testAspirationWindow() {
+        Game game = game();
+        assertEquals(WeightedEvaluator.DEFAULT.pieceValue() / 2,
+                     new AI(game, PieceColor.WHITE).aspirationWindow());
+        assertEquals(1, new AI(game, PieceColor.WHITE,
+                               new MaterialEvaluator()).aspirationWindow());
+        assertEquals(1, new AI(game, PieceColor.WHITE,
+                               new WeightedEvaluator(0, 1, 0))
+                     .aspirationWindow());
+    }
+}
@@ -1,12 +1,15 @@
 package qirkat;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Formatter;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.Random;
 import static qirkat.PieceColor.*;
 import static qirkat.Move.*;
-import java.util.Stack;
 
 /** A Qirkat board.   The squares are labeled by column (a char value between
  *  'a' and 'e') and row (a char value between '1' and '5'.
@@ -16,6 +19,10 @@ import java.util.Stack;
  *  number of the square in row-major order (with row 0 being the bottom row)
  *  counting from 0).
  *
+ *  Internally, the position is a pair of 25-bit masks, one per color,
+ *  in which bit K is set iff linearized square K holds a piece of that
+ *  color.
+ *
  *  Moves on this board are denoted by Moves.
  *  @author Chelsea Chen
  */
@@ -42,17 +49,17 @@ class Board extends Observable {
     void clear() {
         _whoseMove = WHITE;
         _gameOver = false;
-        status = new int[SIDE * SIDE];
-        allmoves = new Stack<Move>();
+        _movedLeft = _movedRight = 0;
+        _plies = 0;
+        _history = null;
         winner = null;
-        newBoard = new PieceColor[]{WHITE, WHITE, WHITE, WHITE, WHITE,
-            WHITE, WHITE, WHITE, WHITE, WHITE,
-            BLACK, BLACK, EMPTY, WHITE, WHITE,
-            BLACK, BLACK, BLACK, BLACK, BLACK,
-            BLACK, BLACK, BLACK, BLACK, BLACK};
+        _white = INITIAL_WHITE;
+        _black = INITIAL_BLACK;
+        _key = computeKey();
+        computeAdvancement();
+        forgetLegalMoves();
 
-        setChanged();
-        notifyObservers();
+        announce(BoardChange.Kind.RESET, null, ALL_SQUARES);
     }
 
     /** Copy B into me. */
@@ -62,9 +69,8 @@ class Board extends Observable {
 
     /** Copy B into me. */
     private void internalCopy(Board b) {
-        for (int i = 0; i < newBoard.length; i++) {
-            set(i, b.newBoard[i]);
-        }
+        _white = b._white;
+        _black = b._black;
 
         for (PieceColor value : PIECE_VALUES) {
             if (b._whoseMove == value) {
@@ -75,26 +81,26 @@ class Board extends Observable {
             }
         }
 
-        for (int i = 0; i < status.length; i++) {
-            this.status[i] = b.status[i];
-        }
-
-        ArrayList<Move> arraymove = new ArrayList<>();
+        _movedLeft = b._movedLeft;
+        _movedRight = b._movedRight;
+        _key = b._key;
+        System.arraycopy(b._advancement, 0, _advancement, 0,
+                         _advancement.length);
 
-        for (int i = 0; i < b.allmoves.size(); i++) {
-            arraymove.add(b.allmoves.pop());
+        _history = b._history;
+        _plies = b._plies;
+        if (_savedKeys.length < _plies) {
+            _savedKeys = new long[b._savedKeys.length];
         }
-
-        Stack<Move> allmovesnew = new Stack<Move>();
-
-        for (int i = arraymove.size(); i > 0; i--) {
-            allmovesnew.push(arraymove.get(i - 1));
-            b.allmoves.push(arraymove.get(i - 1));
+        if (_savedStates.length < _plies * SAVED_FIELDS) {
+            _savedStates = new int[b._savedStates.length];
         }
-        allmoves = allmovesnew;
+        System.arraycopy(b._savedKeys, 0, _savedKeys, 0, _plies);
+        System.arraycopy(b._savedStates, 0, _savedStates, 0,
+                         _plies * SAVED_FIELDS);
 
         this._gameOver = b.gameOver();
-
+        forgetLegalMoves();
     }
 
     /** Set my contents as defined by STR.  STR consists of 25 characters,
@@ -115,8 +121,9 @@ class Board extends Observable {
 
         _whoseMove = nextMove;
         _gameOver = false;
-        status = new int[SIDE * SIDE];
-        allmoves = new Stack<Move>();
+        _movedLeft = _movedRight = 0;
+        _plies = 0;
+        _history = null;
         winner = null;
 
         for (int k = 0; k < str.length(); k += 1) {
@@ -134,9 +141,32 @@ class Board extends Observable {
                 break;
             }
         }
+        _key = computeKey();
+        computeAdvancement();
+        forgetLegalMoves();
 
-        setChanged();
-        notifyObservers();
+        announce(BoardChange.Kind.RESET, null, ALL_SQUARES);
+    }
+
+    /** Set my contents to the pieces in the square masks WHITE and
+     *  BLACK, with the horizontal-direction flags given by the masks
+     *  MOVEDLEFT and MOVEDRIGHT (see movedLeft and movedRight), and
+     *  NEXTMOVE to move.  Unlike setPieces, determines whether the game
+     *  is over.  Observers are not notified. */
+    void setPosition(int white, int black, int movedLeft, int movedRight,
+                     PieceColor nextMove) {
+        _whoseMove = nextMove;
+        _plies = 0;
+        _history = null;
+        _white = white;
+        _black = black;
+        _movedLeft = movedLeft;
+        _movedRight = movedRight;
+        _key = computeKey();
+        computeAdvancement();
+        forgetLegalMoves();
+        _gameOver = !isMove();
+        winner = _gameOver ? nextMove.opposite() : null;
     }
 
     /** Return true iff the game is over: i.e., if the current player has
@@ -155,7 +185,41 @@ class Board extends Observable {
     /** Return the current contents of the square at linearized index K. */
     PieceColor get(int k) {
         assert validSquare(k);
-        return newBoard[k];
+        int bit = 1 << k;
+        if ((_white & bit) != 0) {
+            return WHITE;
+        } else if ((_black & bit) != 0) {
+            return BLACK;
+        } else {
+            return EMPTY;
+        }
+    }
+
+    /** Return the number of squares whose contents are C. */
+    int count(PieceColor c) {
+        return Integer.bitCount(pieces(c));
+    }
+
+    /** Return the sum over the pieces of color C of the number of rows
+     *  each has advanced from C's home row.  Maintained incrementally by
+     *  makeMove and undo, so that it costs nothing to fetch. */
+    int advancement(PieceColor c) {
+        return _advancement[c.ordinal()];
+    }
+
+    /** Return the number of non-capturing moves that the pieces of
+     *  color C could make onto empty squares if it were C's move,
+     *  ignoring the restrictions on horizontal moves.  A quick estimate
+     *  of C's freedom of movement, computed with a few mask operations. */
+    int mobility(PieceColor c) {
+        int own = pieces(c), empty = pieces(EMPTY), result = 0;
+        for (int d = 0; d < DIRECTIONS.length; d += 1) {
+            if (c == WHITE ? DIRECTIONS[d] >= -1 : DIRECTIONS[d] <= 1) {
+                int to = shift(own & STEP_SOURCES[d], DIRECTIONS[d]);
+                result += Integer.bitCount(to & empty);
+            }
+        }
+        return result;
     }
 
     /** Set get(C, R) to V, where 'a' <= C <= 'e', and
@@ -168,26 +232,116 @@ class Board extends Observable {
     /** Set get(K) to V, where K is the linearized index of a square. */
     private void set(int k, PieceColor v) {
         assert validSquare(k);
-        newBoard[k] = v;
+        int bit = 1 << k;
+        PieceColor old = get(k);
+        _key ^= pieceKey(old, k) ^ pieceKey(v, k);
+        _advancement[old.ordinal()] -= ADVANCEMENT[old.ordinal()][k];
+        _advancement[v.ordinal()] += ADVANCEMENT[v.ordinal()][k];
+        _white &= ~bit;
+        _black &= ~bit;
+        if (v == WHITE) {
+            _white |= bit;
+        } else if (v == BLACK) {
+            _black |= bit;
+        }
+    }
+
+    /** Return the bit mask of the squares whose contents are C. */
+    int pieces(PieceColor c) {
+        switch (c) {
+        case WHITE:
+            return _white;
+        case BLACK:
+            return _black;
+        default:
+            return ~(_white | _black) & ALL_SQUARES;
+        }
     }
 
-    /** Return true iff MOV is legal on the current board. */
+    /** Return true iff MOV is legal on the current board.  A move is
+     *  legal iff its encoding is that of a legal move (see
+     *  getMoves(long[])) and, if it is a jump, each of its legs is a
+     *  valid jump.  Its path then leads to the same position as a legal
+     *  maximal capture sequence, so it is maximal too. */
     boolean legalMove(Move mov) {
-        int a = mov.fromIndex();
-        if (_whoseMove.equals(get(a)) && getMoves().contains(mov)) {
-            if (!mov.isJump() && ((status[a] == -1 && mov.isRightMove())
-                    || (status[a] == 1 && mov.isLeftMove()))) {
-                return false;
-            } else if ((mov.isLeftMove() || mov.isRightMove())
-                && ((whoseMove().equals(WHITE) && row(a) == '5')
-                || (whoseMove().equals(BLACK) && row(a) == '1'))) {
-                return false;
+        return legalMove(mov, null);
+    }
+
+    /** Return true iff MOV is legal on the current board, as for
+     *  legalMove(MOV).  If MOVES is null, the legal moves of the position
+     *  are indexed for later checks.  Otherwise, MOVES must have room for
+     *  MAX_MOVES entries, and the moves are generated into it and looked
+     *  through instead, which is cheaper for a position whose moves are
+     *  checked only once. */
+    boolean legalMove(Move mov, long[] moves) {
+        long encoded = encode(mov);
+        boolean found = false;
+        if (moves == null) {
+            found = legalEncoding(encoded);
+        } else {
+            int n = getMoves(moves);
+            for (int i = 0; i < n && !found; i += 1) {
+                found = moves[i] == encoded;
+            }
+        }
+        return found && (!mov.isJump() || checkJump(mov, this));
+    }
+
+    /** Return true iff the encoded move MOV is one of those produced by
+     *  getMoves(long[]) for the current position.  The legal moves are
+     *  generated once per position and kept in a hash table, so that
+     *  repeated checks in the same position cost a probe each. */
+    private boolean legalEncoding(long mov) {
+        if (!_legalMovesValid) {
+            indexLegalMoves();
+        }
+        int mask = _legalIndex.length - 1;
+        for (int i = legalHash(mov, mask); _legalIndex[i] != 0;
+             i = (i + 1) & mask) {
+            if (_legalIndex[i] == mov) {
+                return true;
             }
-            return true;
         }
         return false;
     }
 
+    /** Fill _legalIndex with the encodings of the legal moves from the
+     *  current position. */
+    private void indexLegalMoves() {
+        if (_legalMoves == null) {
+            _legalMoves = new long[MAX_MOVES];
+        }
+        int n = getMoves(_legalMoves);
+        int size = Integer.highestOneBit(Math.max(n, 2) * 4 - 1);
+        if (_legalIndex == null || _legalIndex.length < size) {
+            _legalIndex = new long[size];
+        } else {
+            Arrays.fill(_legalIndex, 0);
+        }
+        int mask = _legalIndex.length - 1;
+        for (int k = 0; k < n; k += 1) {
+            int i;
+            for (i = legalHash(_legalMoves[k], mask); _legalIndex[i] != 0;
+                 i = (i + 1) & mask) {
+                continue;
+            }
+            _legalIndex[i] = _legalMoves[k];
+        }
+        _legalMovesValid = true;
+    }
+
+    /** Return the slot of _legalIndex, whose length is MASK + 1, at
+     *  which to start looking for the encoded move MOV. */
+    private static int legalHash(long mov, int mask) {
+        return (int) ((mov * 0x9e3779b97f4a7c15L) >>> 40) & mask;
+    }
+
+    /** Record that the position has changed, so that the legal moves
+     *  indexed by indexLegalMoves are no longer valid. */
+    private void forgetLegalMoves() {
+        _legalMovesValid = false;
+    }
+
     /** Return a list of all legal moves from the current position. */
     ArrayList<Move> getMoves() {
         ArrayList<Move> result = new ArrayList<>();
@@ -200,12 +354,12 @@ class Board extends Observable {
         if (gameOver()) {
             return;
         }
-        if (jumpPossible()) {
-            for (int k = 0; k <= MAX_INDEX; k += 1) {
+        boolean jumps = jumpPossible();
+        for (int own = pieces(_whoseMove); own != 0; own &= own - 1) {
+            int k = Integer.numberOfTrailingZeros(own);
+            if (jumps) {
                 getJumps(moves, k);
-            }
-        } else {
-            for (int k = 0; k <= MAX_INDEX; k += 1) {
+            } else {
                 getMoves(moves, k);
             }
         }
@@ -214,37 +368,13 @@ class Board extends Observable {
     /** Add all legal non-capturing moves from the position
      *  with linearized index K to MOVES. */
     private void getMoves(ArrayList<Move> moves, int k) {
-        int[] evenw = {-1, 1, 4, 5, 6};
-        int[] oddw = {-1, 1, 5};
-        int[] eveno = {-6, -5, -4, -1, 1};
-        int[] oddo = {-5, -1, 1};
-        int[] ind;
-
-        if (whoseMove().equals(WHITE)) {
-            if (k % 2 == 0) {
-                ind = evenw;
-            } else {
-                ind = oddw;
-            }
-        } else {
-            if (k % 2 == 0) {
-                ind = eveno;
-            } else {
-                ind = oddo;
-            }
+        if ((pieces(_whoseMove) & (1 << k)) == 0) {
+            return;
         }
-
-        if (whoseMove().equals(get(k)) && !EMPTY.equals(get(k))) {
-            for (int m : ind) {
-                boolean val = validSquare(k + m) && EMPTY.equals(get(k + m));
-                boolean up = m % 5 == 0;
-                boolean left =  (m - 1) % 5 == 0 && col(k) < col(k + m);
-                boolean right = (m + 1) % 5 == 0 && col(k + m) < col(k);
-
-                if (val && (up || left || right)) {
-                    Move newmove = move(col(k), row(k), col(k + m), row(k + m));
-                    moves.add(newmove);
-                }
+        int empty = pieces(EMPTY);
+        for (int to : STEPS[_whoseMove.ordinal()][k]) {
+            if ((empty & (1 << to)) != 0) {
+                moves.add(move(col(k), row(k), col(to), row(to)));
             }
         }
     }
@@ -252,77 +382,220 @@ class Board extends Observable {
     /** Add all legal captures from the position with linearized index K
      *  to MOVES. */
     private void getJumps(ArrayList<Move> moves, int k) {
+        if ((pieces(_whoseMove) & (1 << k)) == 0) {
+            return;
+        }
+        _jumpPath[0] = k;
+        extendJumps(moves, 0, pieces(_whoseMove.opposite()), pieces(EMPTY));
+    }
 
-        Move tmove;
+    /** Add to MOVES every maximal capture sequence that continues the
+     *  partial sequence _jumpPath[0 .. DEPTH], where the capturing piece,
+     *  now at _jumpPath[DEPTH], has yet to capture the pieces in mask
+     *  OPP and may land on the squares in mask EMPTY.  The board itself
+     *  is not modified. */
+    private void extendJumps(ArrayList<Move> moves, int depth,
+                             int opp, int empty) {
+        int k = _jumpPath[depth];
+        boolean extended = false;
+        for (int d = 0; d < DIRECTIONS.length; d += 1) {
+            int over = NEIGHBORS[k][d], to = JUMPS[k][d];
+            if (to >= 0 && (opp & (1 << over)) != 0
+                && (empty & (1 << to)) != 0) {
+                extended = true;
+                _jumpPath[depth + 1] = to;
+                extendJumps(moves, depth + 1, opp & ~(1 << over),
+                            (empty | (1 << k) | (1 << over)) & ~(1 << to));
+            }
+        }
+        if (!extended && depth > 0) {
+            Move chain = null;
+            for (int i = depth; i > 0; i -= 1) {
+                int from = _jumpPath[i - 1], to = _jumpPath[i];
+                chain = Move.move(col(from), row(from), col(to), row(to),
+                                  chain);
+            }
+            moves.add(chain);
+        }
+    }
 
-        int[] even = {-6, -5, -4, -1, 1, 4, 5, 6};
-        int[] odd = {-5, -1, 1, 5};
-        int[] gen;
+    /** Return true iff MOV is a valid jump sequence on the current board.
+     *  MOV must be a jump or null. Testing valid jumps on board SET.  */
+    boolean checkJump(Move mov, Board set) {
+        int own = set.pieces(_whoseMove),
+            opp = set.pieces(_whoseMove.opposite());
+        for (; mov != null; mov = mov.jumpTail()) {
+            int from = 1 << mov.fromIndex(), to = 1 << mov.toIndex(),
+                over = 1 << mov.jumpedIndex();
+            if (!mov.isJump() || (own & from) == 0
+                || ((own | opp) & to) != 0 || (opp & over) == 0) {
+                return false;
+            }
+            own = (own & ~from) | to;
+            opp &= ~over;
+        }
+        return true;
+    }
+
+    /* Encoded moves.  To avoid allocating and chasing pointers during a
+     * search, the AI represents moves as longs: bits 0-4 hold the
+     * linearized index of the starting square, bits 5-9 that of the
+     * final square, and bits 10-34 a mask of the squares captured.
+     * These three values determine the position that results from the
+     * move, so multi-jumps that capture the same pieces in different
+     * orders share an encoding.  No valid move encodes as 0. */
+
+    /** An upper bound on the number of encoded moves from any
+     *  position. */
+    static final int MAX_MOVES = 512;
+
+    /** Return the encoded move from square FROM to square TO that
+     *  captures the squares in mask CAPTURES. */
+    static long encode(int from, int to, int captures) {
+        return from | (to << 5) | ((long) captures << 10);
+    }
 
-        if (k % 2 == 0) {
-            gen = even;
+    /** Return the encoding of MOV. */
+    static long encode(Move mov) {
+        int from = mov.fromIndex(), captures = 0;
+        for (; mov.jumpTail() != null; mov = mov.jumpTail()) {
+            captures |= 1 << mov.jumpedIndex();
+        }
+        if (mov.isJump()) {
+            captures |= 1 << mov.jumpedIndex();
+        }
+        return encode(from, mov.toIndex(), captures);
+    }
+
+    /** Return the starting square of encoded move MOV. */
+    static int moveFrom(long mov) {
+        return (int) mov & 0x1f;
+    }
+
+    /** Return the final square of encoded move MOV. */
+    static int moveTo(long mov) {
+        return (int) (mov >>> 5) & 0x1f;
+    }
+
+    /** Return the mask of squares captured by encoded move MOV. */
+    static int moveCaptures(long mov) {
+        return (int) (mov >>> 10);
+    }
+
+    /** Return the first legal Move in getMoves() whose encoding is MOV,
+     *  or null if there is none.  The Move is reconstructed from MOV:
+     *  for a capture, by searching, in the order getMoves() uses, for
+     *  a path that captures exactly the pieces MOV does. */
+    Move decode(long mov) {
+        if (!legalEncoding(mov)) {
+            return null;
+        }
+        int from = moveFrom(mov), to = moveTo(mov),
+            captures = moveCaptures(mov);
+        if (captures == 0) {
+            return Move.move(from, to, null);
+        }
+        _jumpPath[0] = from;
+        int depth = findJumpPath(0, to, captures, pieces(EMPTY));
+        Move chain = null;
+        for (int i = depth; i > 0; i -= 1) {
+            chain = Move.move(_jumpPath[i - 1], _jumpPath[i], chain);
+        }
+        return chain;
+    }
+
+    /** Extend the partial capture sequence _jumpPath[0 .. DEPTH] with
+     *  jumps that capture exactly the pieces in mask CAPTURES, landing
+     *  only on squares in mask EMPTY and ending on square TO.  Tries
+     *  jumps in the order used by extendJumps.  Returns the index in
+     *  _jumpPath of the last square of the first such sequence, or -1
+     *  if there is none. */
+    private int findJumpPath(int depth, int to, int captures, int empty) {
+        int k = _jumpPath[depth];
+        if (captures == 0) {
+            return k == to ? depth : -1;
+        }
+        for (int d = 0; d < DIRECTIONS.length; d += 1) {
+            int over = NEIGHBORS[k][d], next = JUMPS[k][d];
+            if (next >= 0 && (captures & (1 << over)) != 0
+                && (empty & (1 << next)) != 0) {
+                _jumpPath[depth + 1] = next;
+                int result =
+                    findJumpPath(depth + 1, to, captures & ~(1 << over),
+                                 (empty | (1 << k) | (1 << over))
+                                 & ~(1 << next));
+                if (result >= 0) {
+                    return result;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Store the encodings of all legal moves from the current position
+     *  into MOVES, which must have room for MAX_MOVES entries, and
+     *  return their number.  Unlike getMoves(), the result includes only
+     *  moves that satisfy legalMove, and each encoding appears once. */
+    int getMoves(long[] moves) {
+        if (gameOver()) {
+            return 0;
+        }
+        int n = 0;
+        int empty = pieces(EMPTY);
+        if (jumpPossible()) {
+            int opp = pieces(_whoseMove.opposite());
+            for (int own = pieces(_whoseMove); own != 0; own &= own - 1) {
+                int k = Integer.numberOfTrailingZeros(own);
+                n = extendJumps(moves, n, n, k, k, opp, empty, 0);
+            }
         } else {
-            gen = odd;
-        }
-
-        if (get(k).equals(whoseMove()) && !get(k).equals(EMPTY)) {
-            for (int m : gen) {
-                boolean v = validSquare(k + m + m)
-                        && EMPTY.equals(get(k + m + m));
-                boolean up = col(k) == col(k + m)
-                        && col(k + m) == col(k + m + m);
-                boolean right = col(k) < col(k + m)
-                        && col(k + m) < col(k + m + m);
-                boolean left = col(k) > col(k + m)
-                        && col(k + m) > col(k + m + m);
-
-                if (v && (up || right || left)) {
-                    ArrayList<Move> possJumps = new ArrayList<>();
-                    Board t = new Board();
-                    t.copy(this);
-                    tmove = Move.move(col(k), row(k),
-                            col(k + m + m), row(k + m + m));
-
-                    if (checkJump(tmove, this)) {
-                        t.set(tmove.toIndex(), _whoseMove);
-                        t.set(tmove.jumpedIndex(), EMPTY);
-                        t.set(tmove.fromIndex(), EMPTY);
-                        t.getJumps(possJumps, k + m + m);
-                        if (possJumps.size() == 0) {
-                            moves.add(tmove);
-                        } else {
-                            for (Move p : possJumps) {
-                                moves.add(Move.move(tmove, p));
-                            }
-                        }
+            for (int own = pieces(_whoseMove); own != 0; own &= own - 1) {
+                int k = Integer.numberOfTrailingZeros(own);
+                for (int to : STEPS[_whoseMove.ordinal()][k]) {
+                    if ((empty & (1 << to)) != 0 && stepAllowed(k, to)) {
+                        moves[n] = encode(k, to, 0);
+                        n += 1;
                     }
                 }
             }
         }
+        return n;
     }
 
-    /** Return true iff MOV is a valid jump sequence on the current board.
-     *  MOV must be a jump or null. Testing valid jumps on board SET.  */
-    boolean checkJump(Move mov, Board set) {
-        if (mov == null) {
-            return true;
-        } else {
-            Board t = new Board();
-            t.copy(set);
-
-            if (validSquare(mov.toIndex())
-                    && whoseMove().equals(get(mov.fromIndex()))
-                    && EMPTY.equals(get(mov.toIndex()))
-                    && whoseMove().opposite().equals(get(mov.jumpedIndex()))) {
-
-                t.set(mov.toIndex(), whoseMove());
-                t.set(mov.jumpedIndex(), EMPTY);
-                t.set(mov.fromIndex(), EMPTY);
-                return checkJump(mov.jumpTail(), t);
-            } else {
-                return false;
+    /** Add to MOVES[N ..] the encodings of the maximal capture sequences
+     *  that start at square FROM and continue a partial sequence that
+     *  has reached square K, capturing the squares in mask CAPTURES.
+     *  OPP is the mask of pieces not yet captured, and EMPTY of the
+     *  squares that may be landed on.  Encodings already in
+     *  MOVES[FIRST .. N-1] are not added again.  Returns the new number
+     *  of entries in MOVES. */
+    private int extendJumps(long[] moves, int n, int first, int from, int k,
+                            int opp, int empty, int captures) {
+        boolean extended = false;
+        for (int d = 0; d < DIRECTIONS.length; d += 1) {
+            int over = NEIGHBORS[k][d], to = JUMPS[k][d];
+            if (to >= 0 && (opp & (1 << over)) != 0
+                && (empty & (1 << to)) != 0) {
+                extended = true;
+                n = extendJumps(moves, n, first, from, to,
+                                opp & ~(1 << over),
+                                (empty | (1 << k) | (1 << over))
+                                & ~(1 << to),
+                                captures | (1 << over));
             }
         }
+        if (!extended && captures != 0) {
+            long mov = encode(from, k, captures);
+            for (int i = first; i < n; i += 1) {
+                if (moves[i] == mov) {
+                    return n;
+                }
+            }
+            assert n < MAX_MOVES;
+            moves[n] = mov;
+            n += 1;
+        }
+        return n;
     }
 
     /** Return true iff a jump is possible for a piece at position C R. */
@@ -333,28 +606,15 @@ class Board extends Observable {
     /** Return true iff a jump is possible for a piece at position with
      *  linearized index K. */
     boolean jumpPossible(int k) {
-        int[] emoves = {-6, -5, -4, -1, 1, 4, 5, 6};
-        int[] omoves = {-5, -1, 1, 5};
-        int[] jumps;
-        if (k % 2 == 0) {
-            jumps = emoves;
-        } else {
-            jumps = omoves;
-        }
-
-        if (whoseMove().equals(get(k))) {
-            for (int move : jumps) {
-                if (validSquare(k + move + move)
-                        && get(k + move + move).equals(EMPTY)
-                        && get(k).opposite().equals(get(k + move))
-                        && ((col(k) == col(k + move)
-                        && col(k + move) == col(k + move + move))
-                        || (col(k) < col(k + move)
-                        && col(k + move) < col(k + move + move))
-                        || (col(k) > col(k + move)
-                        && col(k + move) > col(k + move + move)))) {
-                    return true;
-                }
+        if ((pieces(_whoseMove) & (1 << k)) == 0) {
+            return false;
+        }
+        int opp = pieces(_whoseMove.opposite()), empty = pieces(EMPTY);
+        for (int d = 0; d < DIRECTIONS.length; d += 1) {
+            int to = JUMPS[k][d];
+            if (to >= 0 && (opp & (1 << NEIGHBORS[k][d])) != 0
+                && (empty & (1 << to)) != 0) {
+                return true;
             }
         }
         return false;
@@ -362,14 +622,23 @@ class Board extends Observable {
 
     /** Return true iff a jump is possible from the current board. */
     boolean jumpPossible() {
-        for (int k = 0; k <= MAX_INDEX; k += 1) {
-            if (jumpPossible(k)) {
+        int own = pieces(_whoseMove), opp = pieces(_whoseMove.opposite()),
+            empty = pieces(EMPTY);
+        for (int d = 0; d < DIRECTIONS.length; d += 1) {
+            int over = shift(own & JUMP_SOURCES[d], DIRECTIONS[d]) & opp;
+            if ((shift(over, DIRECTIONS[d]) & empty) != 0) {
                 return true;
             }
         }
         return false;
     }
 
+    /** Return the square mask BITS with each square moved by linearized
+     *  offset DELTA (which may be negative). */
+    private static int shift(int bits, int delta) {
+        return delta >= 0 ? bits << delta : bits >>> -delta;
+    }
+
     /** Return the color of the player who has the next move.  The
      *  value is arbitrary if gameOver(). */
     PieceColor whoseMove() {
@@ -387,23 +656,37 @@ class Board extends Observable {
         makeMove(Move.move(c0, r0, c1, r1, next));
     }
 
-    /** Make the Move MOV on this Board, assuming it is legal. */
+    /** Make the Move MOV on this Board, assuming it is legal.  An illegal
+     *  MOV is ignored (or, with assertions enabled, is an error). */
     void makeMove(Move mov) {
-        assert legalMove(mov);
         Move makemove = mov;
-
-        if (legalMove(makemove)) {
+        boolean legal = legalMove(makemove);
+        assert legal : "illegal move " + mov;
+
+        if (legal) {
+            _history = new History(this, mov);
+            forgetLegalMoves();
+            int white = _white, black = _black;
+            int left = _movedLeft, right = _movedRight;
             while (makemove != null) {
+                int from = 1 << makemove.fromIndex(),
+                    to = 1 << makemove.toIndex();
                 if (makemove.isLeftMove()) {
-                    status[makemove.toIndex()] = -1;
+                    left |= to;
+                    right &= ~to;
                 } else if (makemove.isRightMove()) {
-                    status[makemove.toIndex()] = 1;
+                    right |= to;
+                    left &= ~to;
                 } else if (makemove.isJump()) {
-                    status[makemove.jumpedIndex()] = 0;
+                    int over = 1 << makemove.jumpedIndex();
+                    left &= ~over;
+                    right &= ~over;
                 } else {
-                    status[makemove.toIndex()] = 0;
+                    left &= ~to;
+                    right &= ~to;
                 }
-                status[makemove.fromIndex()] = 0;
+                left &= ~from;
+                right &= ~from;
 
                 if (makemove.isJump()) {
                     set(makemove.jumpedIndex(), EMPTY);
@@ -413,44 +696,227 @@ class Board extends Observable {
 
                 makemove = makemove.jumpTail();
             }
+            setDirections(left, right);
             _whoseMove = whoseMove().opposite();
+            _key ^= BLACK_TO_MOVE_KEY;
             if (!isMove()) {
                 _gameOver = true;
                 winner = _whoseMove.opposite();
             }
-            allmoves.push(mov);
 
-            setChanged();
-            notifyObservers();
+            announce(BoardChange.Kind.MOVE, mov,
+                     (white ^ _white) | (black ^ _black));
         }
     }
 
 
-    /** Undo the last move, if any. */
-    void undo() {
+    /** Make the encoded move MOV, which must be one of those produced by
+     *  getMoves(long[]) for the current position.  The move can be
+     *  undone with undo(), but is not recorded in getStack(), and
+     *  observers are not notified. */
+    void makeMove(long mov) {
+        saveState();
+        forgetLegalMoves();
+        int from = moveFrom(mov), to = moveTo(mov),
+            captures = moveCaptures(mov);
+        int left = _movedLeft & ~captures, right = _movedRight & ~captures;
+        if (captures != 0) {
+            left &= ~(1 << from);
+            right &= ~(1 << from);
+        } else if (to == from - 1) {
+            left = (left & ~(1 << from)) | (1 << to);
+            right &= ~(1 << to);
+        } else if (to == from + 1) {
+            right = (right & ~(1 << from)) | (1 << to);
+            left &= ~(1 << to);
+        } else {
+            left &= ~((1 << from) | (1 << to));
+            right &= ~((1 << from) | (1 << to));
+        }
+        PieceColor me = _whoseMove;
+        set(from, EMPTY);
+        set(to, me);
+        for (; captures != 0; captures &= captures - 1) {
+            set(Integer.numberOfTrailingZeros(captures), EMPTY);
+        }
+        setDirections(left, right);
+        _whoseMove = me.opposite();
+        _key ^= BLACK_TO_MOVE_KEY;
+        if (!isMove()) {
+            _gameOver = true;
+            winner = me;
+        }
+    }
 
+    /** Undo the last move, if any, restoring the pieces, horizontal
+     *  direction flags, and game-over state to what they were before
+     *  it was made.  As with makeMove(long), observers are not notified
+     *  when the move undone is an encoded move. */
+    void undo() {
+        int white = _white, black = _black;
+        Move undone = null;
+        if (_history != null && _history._plies == _plies) {
+            undone = _history._move;
+            restoreState(_history._state, 0);
+            _key = _history._key;
+            _history = _history._previous;
+        } else if (_plies > 0) {
+            _plies -= 1;
+            restoreState(_savedStates, _plies * SAVED_FIELDS);
+            _key = _savedKeys[_plies];
+        } else {
+            return;
+        }
         _whoseMove = _whoseMove.opposite();
-        Move undomove = allmoves.pop();
+        _gameOver = false;
+        winner = null;
+        forgetLegalMoves();
+
+        if (undone != null) {
+            announce(BoardChange.Kind.UNDO, undone,
+                     (white ^ _white) | (black ^ _black));
+        }
+    }
+
+    /** Tell my observers of a change of kind KIND that made or undid
+     *  MOVE (null for none) and altered the contents of the squares in
+     *  the mask SQUARES.  Boards that nothing observes, such as those
+     *  used for searching, skip building the notice. */
+    private void announce(BoardChange.Kind kind, Move move, int squares) {
+        if (countObservers() > 0) {
+            setChanged();
+            notifyObservers(new BoardChange(kind, move, squares, _whoseMove));
+        }
+    }
+
+    /** Bring me up to date with B, of which I was a copy before B made
+     *  CHANGE, by copying only the squares CHANGE altered, or all of B
+     *  if that does not suffice. */
+    private void applyChange(Board b, BoardChange change) {
+        if (change.kind() == BoardChange.Kind.RESET) {
+            internalCopy(b);
+            return;
+        }
+        for (int m = change.squares(); m != 0; m &= m - 1) {
+            int k = Integer.numberOfTrailingZeros(m);
+            set(k, b.get(k));
+        }
+        if (_white != b._white || _black != b._black) {
+            internalCopy(b);
+            return;
+        }
+        setDirections(b._movedLeft, b._movedRight);
+        if (_whoseMove != b._whoseMove) {
+            _whoseMove = b._whoseMove;
+            _key ^= BLACK_TO_MOVE_KEY;
+        }
+        assert _key == b._key;
+        _gameOver = b._gameOver;
+        winner = b.winner;
+        _history = b._history;
+        forgetLegalMoves();
+    }
+
+    /** Record the state that undo() restores, for the move about to be
+     *  made. */
+    private void saveState() {
+        int k = _plies * SAVED_FIELDS;
+        if (k + SAVED_FIELDS > _savedStates.length) {
+            _savedStates = Arrays.copyOf(_savedStates,
+                                         2 * (k + SAVED_FIELDS));
+        }
+        if (_plies >= _savedKeys.length) {
+            _savedKeys = Arrays.copyOf(_savedKeys, 2 * _savedKeys.length);
+        }
+        _savedKeys[_plies] = _key;
+        saveState(_savedStates, k);
+        _plies += 1;
+    }
+
+    /** Store the masks _white, _black, _movedLeft, and _movedRight and
+     *  the advancements of White and Black in STATES[K .. K +
+     *  SAVED_FIELDS - 1]. */
+    private void saveState(int[] states, int k) {
+        states[k] = _white;
+        states[k + 1] = _black;
+        states[k + 2] = _movedLeft;
+        states[k + 3] = _movedRight;
+        states[k + 4] = _advancement[WHITE.ordinal()];
+        states[k + 5] = _advancement[BLACK.ordinal()];
+    }
+
+    /** Set the fields stored by saveState(STATES, K) from STATES. */
+    private void restoreState(int[] states, int k) {
+        _white = states[k];
+        _black = states[k + 1];
+        _movedLeft = states[k + 2];
+        _movedRight = states[k + 3];
+        _advancement[WHITE.ordinal()] = states[k + 4];
+        _advancement[BLACK.ordinal()] = states[k + 5];
+    }
+
+    /** Set _movedLeft and _movedRight to LEFT and RIGHT, updating my
+     *  key to match. */
+    private void setDirections(int left, int right) {
+        for (int c = left ^ _movedLeft; c != 0; c &= c - 1) {
+            _key ^= MOVED_LEFT_KEYS[Integer.numberOfTrailingZeros(c)];
+        }
+        for (int c = right ^ _movedRight; c != 0; c &= c - 1) {
+            _key ^= MOVED_RIGHT_KEYS[Integer.numberOfTrailingZeros(c)];
+        }
+        _movedLeft = left;
+        _movedRight = right;
+    }
+
+    /** Return the mask of the squares holding pieces whose last move was
+     *  a horizontal move to the left, and that may not next move to the
+     *  right. */
+    int movedLeft() {
+        return _movedLeft;
+    }
+
+    /** Return the mask of the squares holding pieces whose last move was
+     *  a horizontal move to the right, and that may not next move to the
+     *  left. */
+    int movedRight() {
+        return _movedRight;
+    }
 
-        int from = undomove.fromIndex();
-        int to = undomove.toIndex();
-        set(from, _whoseMove);
+    /** Return a 64-bit Zobrist hash of the current position, covering the
+     *  pieces, the player to move, and the horizontal-direction flags.
+     *  Maintained incrementally by makeMove and undo, so that it costs
+     *  nothing to fetch. */
+    long key() {
+        return _key;
+    }
 
-        if (undomove.isJump()) {
-            while (undomove != null) {
-                set(undomove.jumpedIndex(), _whoseMove.opposite());
-                to = undomove.toIndex();
-                undomove = undomove.jumpTail();
+    /** Return the value of key() computed from scratch. */
+    private long computeKey() {
+        long key = _whoseMove == BLACK ? BLACK_TO_MOVE_KEY : 0;
+        for (int k = 0; k <= MAX_INDEX; k += 1) {
+            key ^= pieceKey(get(k), k);
+            if ((_movedLeft & (1 << k)) != 0) {
+                key ^= MOVED_LEFT_KEYS[k];
+            }
+            if ((_movedRight & (1 << k)) != 0) {
+                key ^= MOVED_RIGHT_KEYS[k];
             }
         }
-        set(to, EMPTY);
+        return key;
+    }
 
-        if (_gameOver) {
-            _gameOver = false;
+    /** Set advancement() for both colors from scratch. */
+    private void computeAdvancement() {
+        Arrays.fill(_advancement, 0);
+        for (int k = 0; k <= MAX_INDEX; k += 1) {
+            PieceColor v = get(k);
+            _advancement[v.ordinal()] += ADVANCEMENT[v.ordinal()][k];
         }
+    }
 
-        setChanged();
-        notifyObservers();
+    /** Return the contribution to key() of having V at square K. */
+    private static long pieceKey(PieceColor v, int k) {
+        return PIECE_KEYS[v.ordinal()][k];
     }
 
     @Override
@@ -466,12 +932,12 @@ class Board extends Observable {
             out.format(" ");
             for (int i = j * 5; i < (j + 1) * 5; i++) {
                 out.format(" ");
-                out.format(newBoard[i].shortName());
+                out.format(get(i).shortName());
             }
             if (j == 0) {
                 break;
             }
-            out.format("\n", newBoard[j]);
+            out.format("\n");
         }
         return out.toString();
     }
@@ -479,14 +945,39 @@ class Board extends Observable {
 
     /** Return true iff there is a move for the current player. */
     private boolean isMove() {
-        for (Move m: getMoves()) {
-            if (legalMove(m)) {
-                return true;
+        if (jumpPossible()) {
+            return true;
+        }
+        int empty = pieces(EMPTY);
+        for (int own = pieces(_whoseMove); own != 0; own &= own - 1) {
+            int k = Integer.numberOfTrailingZeros(own);
+            for (int to : STEPS[_whoseMove.ordinal()][k]) {
+                if ((empty & (1 << to)) != 0 && stepAllowed(k, to)) {
+                    return true;
+                }
             }
         }
         return false;
     }
 
+    /** Return true iff the horizontal-direction rules allow the piece on
+     *  square FROM to make a non-capturing move to the adjacent square
+     *  TO. */
+    private boolean stepAllowed(int from, int to) {
+        if (to == from + 1) {
+            return (_movedLeft & (1 << from)) == 0 && !onLastRow(from);
+        } else if (to == from - 1) {
+            return (_movedRight & (1 << from)) == 0 && !onLastRow(from);
+        }
+        return true;
+    }
+
+    /** Return true iff square K is on the row farthest from the side
+     *  of the player to move. */
+    private boolean onLastRow(int k) {
+        return _whoseMove == WHITE ? k >= SIDE * (SIDE - 1) : k < SIDE;
+    }
+
     /** Player that is on move. */
     private PieceColor _whoseMove;
 
@@ -501,24 +992,214 @@ class Board extends Observable {
     private static class MoveList extends ArrayList<Move> {
     }
 
-    /** newBoard of PieceColors. */
-    private PieceColor[] newBoard = new PieceColor[SIDE * SIDE];
+    /** Mask with one bit for each square on the board. */
+    private static final int ALL_SQUARES = (1 << (SIDE * SIDE)) - 1;
+
+    /** Squares occupied at the start of the game. */
+    private static final int
+        INITIAL_WHITE = 0x3ff | (1 << 13) | (1 << 14),
+        INITIAL_BLACK = (1 << 10) | (1 << 11) | (0x3ff << 15);
+
+    /** Linearized offsets of the eight directions, in the order in
+     *  which moves are generated. */
+    private static final int[] DIRECTIONS = { -6, -5, -4, -1, 1, 4, 5, 6 };
+
+    /** NEIGHBORS[k][d] is the square adjacent to square K in direction
+     *  DIRECTIONS[d] along a line of the board, or -1 if there is none. */
+    private static final int[][] NEIGHBORS =
+        new int[SIDE * SIDE][DIRECTIONS.length];
 
-    /** Public method to return content of my newBoard. */
-    public PieceColor[] getnewBoard() {
-        return newBoard;
+    /** JUMPS[k][d] is the square two steps from square K in direction
+     *  DIRECTIONS[d] along a line of the board, or -1 if there is none. */
+    private static final int[][] JUMPS =
+        new int[SIDE * SIDE][DIRECTIONS.length];
+
+    /** JUMP_SOURCES[d] is the mask of squares K with JUMPS[K][d] >= 0. */
+    private static final int[] JUMP_SOURCES = new int[DIRECTIONS.length];
+
+    /** STEP_SOURCES[d] is the mask of squares K with
+     *  NEIGHBORS[K][d] >= 0. */
+    private static final int[] STEP_SOURCES = new int[DIRECTIONS.length];
+
+    /** ADVANCEMENT[c][k] is the number of rows a piece of the color with
+     *  ordinal C on square K has advanced from its home row (0 for
+     *  EMPTY). */
+    private static final int[][] ADVANCEMENT =
+        new int[PIECE_VALUES.length][SIDE * SIDE];
+
+    /** STEPS[c][k] lists the squares to which a piece of the color
+     *  with ordinal C may make a non-capturing move from square K,
+     *  in the order in which such moves are generated. */
+    private static final int[][][] STEPS =
+        new int[PIECE_VALUES.length][SIDE * SIDE][];
+
+    static {
+        for (int k = 0; k <= MAX_INDEX; k += 1) {
+            int whites = 0, blacks = 0;
+            int[] forWhite = new int[DIRECTIONS.length],
+                forBlack = new int[DIRECTIONS.length];
+            for (int d = 0; d < DIRECTIONS.length; d += 1) {
+                NEIGHBORS[k][d] = step(k, DIRECTIONS[d]);
+                JUMPS[k][d] = NEIGHBORS[k][d] < 0 ? -1
+                    : step(NEIGHBORS[k][d], DIRECTIONS[d]);
+                if (JUMPS[k][d] >= 0) {
+                    JUMP_SOURCES[d] |= 1 << k;
+                }
+                if (NEIGHBORS[k][d] >= 0) {
+                    STEP_SOURCES[d] |= 1 << k;
+                }
+                if (NEIGHBORS[k][d] >= 0 && DIRECTIONS[d] >= -1) {
+                    forWhite[whites++] = NEIGHBORS[k][d];
+                }
+                if (NEIGHBORS[k][d] >= 0 && DIRECTIONS[d] <= 1) {
+                    forBlack[blacks++] = NEIGHBORS[k][d];
+                }
+            }
+            STEPS[WHITE.ordinal()][k] = Arrays.copyOf(forWhite, whites);
+            STEPS[BLACK.ordinal()][k] = Arrays.copyOf(forBlack, blacks);
+            STEPS[EMPTY.ordinal()][k] = new int[0];
+            ADVANCEMENT[WHITE.ordinal()][k] = k / SIDE;
+            ADVANCEMENT[BLACK.ordinal()][k] = SIDE - 1 - k / SIDE;
+        }
+    }
+
+    /** Return the square one step from square K in the direction of
+     *  linearized offset DELTA, or -1 if that leaves the board or
+     *  there is no line in that direction from K. */
+    private static int step(int k, int delta) {
+        int dc = (delta + SIDE + 1) % SIDE - 1, dr = (delta - dc) / SIDE;
+        int c = k % SIDE + dc, r = k / SIDE + dr;
+        if (c < 0 || c >= SIDE || r < 0 || r >= SIDE
+            || (dc != 0 && dr != 0 && k % 2 != 0)) {
+            return -1;
+        }
+        return k + delta;
     }
 
-    /** Array of piece values to ensure pieces don't
-     * go back to where it came from horizontally. */
-    private int[] status = new int[SIDE * SIDE];
+    /** Random values combined by exclusive or to form key().
+     *  PIECE_KEYS[c][k] corresponds to a piece of the color with ordinal C
+     *  (zero for EMPTY) on square K, MOVED_LEFT_KEYS[k] and
+     *  MOVED_RIGHT_KEYS[k] to the direction flags of square K, and
+     *  BLACK_TO_MOVE_KEY to Black being on move.  The seed is fixed so that
+     *  keys are the same from run to run. */
+    private static final long[][] PIECE_KEYS =
+        new long[PIECE_VALUES.length][SIDE * SIDE];
+    /** See PIECE_KEYS. */
+    private static final long[]
+        MOVED_LEFT_KEYS = new long[SIDE * SIDE],
+        MOVED_RIGHT_KEYS = new long[SIDE * SIDE];
+    /** See PIECE_KEYS. */
+    private static final long BLACK_TO_MOVE_KEY;
+
+    static {
+        Random keys = new Random(1729);
+        for (int k = 0; k <= MAX_INDEX; k += 1) {
+            PIECE_KEYS[WHITE.ordinal()][k] = keys.nextLong();
+            PIECE_KEYS[BLACK.ordinal()][k] = keys.nextLong();
+            MOVED_LEFT_KEYS[k] = keys.nextLong();
+            MOVED_RIGHT_KEYS[k] = keys.nextLong();
+        }
+        BLACK_TO_MOVE_KEY = keys.nextLong();
+    }
 
-    /** Stack to keep track of all moves. */
-    private Stack<Move> allmoves = new Stack<Move>();
+    /** Occupied squares of each color, one bit per linearized index. */
+    private int _white, _black;
+
+    /** Squares holding pieces whose last move was a horizontal move to
+     *  the left (resp. right), and that therefore may not next move back
+     *  to the right (resp. left). */
+    private int _movedLeft, _movedRight;
+
+    /** The value of key(). */
+    private long _key;
+
+    /** _advancement[c] is the value of advancement() for the color with
+     *  ordinal C (always 0 for EMPTY). */
+    private final int[] _advancement = new int[PIECE_VALUES.length];
+
+    /** The moves made with makeMove(Move) and not undone, most recent
+     *  first, or null if there are none. */
+    private History _history;
+
+    /** The squares visited by the capture sequence being generated by
+     *  extendJumps, indexed by the number of captures made so far.  A
+     *  sequence captures at most one piece per leg, so it can never
+     *  visit more squares than there are on the board. */
+    private final int[] _jumpPath = new int[SIDE * SIDE];
+
+    /** True iff _legalIndex holds the legal moves from the current
+     *  position. */
+    private boolean _legalMovesValid;
+
+    /** Open-addressed hash table of the encodings of the legal moves
+     *  from the position when _legalMovesValid, with 0 marking empty
+     *  slots, and the buffer they are generated into.  Created on first
+     *  use, since boards used only for searching never need them. */
+    private long[] _legalIndex, _legalMoves;
+
+    /** Number of encoded moves made with makeMove(long) and not
+     *  undone. */
+    private int _plies;
+
+    /** Number of ints of state saved per move. */
+    private static final int SAVED_FIELDS = 6;
+
+    /** The masks _white, _black, _movedLeft, and _movedRight and the
+     *  advancements of White and Black, as they were before each of the
+     *  last _plies encoded moves, SAVED_FIELDS entries per move.  Grows
+     *  as needed and is never shrunk, so that a search that repeatedly
+     *  makes and undoes moves does no allocation. */
+    private int[] _savedStates = new int[SAVED_FIELDS * 64];
+
+    /** The value of key() before each of the last _plies encoded
+     *  moves. */
+    private long[] _savedKeys = new long[64];
+
+    /** Return the moves made with makeMove(Move) and not undone, oldest
+     *  first, as an unmodifiable list. */
+    public List<Move> getStack() {
+        Move[] moves = new Move[moveCount()];
+        for (History h = _history; h != null; h = h._previous) {
+            moves[h._size - 1] = h._move;
+        }
+        return Collections.unmodifiableList(Arrays.asList(moves));
+    }
 
-    /** Public method to return stack of moves. */
-    public Stack<Move> getStack() {
-        return allmoves;
+    /** Return the number of moves made with makeMove(Move) and not
+     *  undone. */
+    int moveCount() {
+        return _history == null ? 0 : _history._size;
+    }
+
+    /** A move made with makeMove(Move), linked to the moves made before
+     *  it, with the state that undo() restores.  A History is never
+     *  modified once made, so a copy of a Board shares its history with
+     *  the original in constant time, and the two may then make and undo
+     *  moves independently. */
+    private static class History {
+        /** The history of BOARD after it makes MOVE, recording its state
+         *  before the move. */
+        History(Board board, Move move) {
+            _previous = board._history;
+            _move = move;
+            _size = board.moveCount() + 1;
+            _plies = board._plies;
+            board.saveState(_state, 0);
+            _key = board._key;
+        }
+
+        /** The history before _move, or null if _move is the first. */
+        private final History _previous;
+        /** The move. */
+        private final Move _move;
+        /** Number of moves in this history, including _move. */
+        private final int _size;
+        /** The value of _plies when _move was made. */
+        private final int _plies;
+        /** The state saved by saveState before _move was made. */
+        private final int[] _state = new int[SAVED_FIELDS];
+        /** The value of key() before _move was made. */
+        private final long _key;
     }
 
     /** Winner variable to keep track of winner. */
@@ -560,7 +1241,11 @@ class Board extends Observable {
 
         @Override
         public void update(Observable obs, Object arg) {
-            super.copy((Board) obs);
+            if (arg instanceof BoardChange) {
+                super.applyChange((Board) obs, (BoardChange) arg);
+            } else {
+                super.copy((Board) obs);
+            }
             setChanged();
             notifyObservers(arg);
         }
@@ -580,7 +1265,7 @@ class Board extends Observable {
 
     @Override
     public int hashCode() {
-        return newBoard.toString().hashCode();
+        return (_white * 31 + _black) * 2 + _whoseMove.ordinal();
     }
 }
 
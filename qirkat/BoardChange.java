@@ -0,0 +1,71 @@
+package qirkat;
+
+/** A description of a change to a Board, passed by the Board to its
+ *  observers so that they can bring themselves up to date by looking
+ *  only at the squares that changed.
+ *  @author Chelsea Chen
+ */
+class BoardChange {
+
+    /** The kinds of change. */
+    enum Kind {
+        /** A move was made. */
+        MOVE,
+        /** A move was undone. */
+        UNDO,
+        /** The whole board was replaced (as by clear or setPieces). */
+        RESET
+    }
+
+    /** A change of kind KIND that made or undid MOVE (null for RESET),
+     *  altering the contents of the squares in the bit mask SQUARES and
+     *  leaving NEXTMOVE to move. */
+    BoardChange(Kind kind, Move move, int squares, PieceColor nextMove) {
+        _kind = kind;
+        _move = move;
+        _squares = squares;
+        _whoseMove = nextMove;
+    }
+
+    /** Return the kind of change. */
+    Kind kind() {
+        return _kind;
+    }
+
+    /** Return the move made or undone, or null for RESET. */
+    Move move() {
+        return _move;
+    }
+
+    /** Return the bit mask of the squares whose contents changed (bit K
+     *  for the square with linearized index K). */
+    int squares() {
+        return _squares;
+    }
+
+    /** Return true iff the contents of the square with linearized index
+     *  K changed. */
+    boolean changed(int k) {
+        return (_squares & (1 << k)) != 0;
+    }
+
+    /** Return the player to move after the change. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s (squares %07x, %s to move)", _kind,
+                             _move, _squares, _whoseMove);
+    }
+
+    /** The kind of change. */
+    private final Kind _kind;
+    /** The move made or undone, or null. */
+    private final Move _move;
+    /** Mask of changed squares. */
+    private final int _squares;
+    /** The player to move after the change. */
+    private final PieceColor _whoseMove;
+}
@@ -1,5 +1,7 @@
 package qirkat;
 
+import java.util.ArrayList;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -61,6 +63,83 @@ public class BoardTest {
         assertEquals("second pass failed to reach same position", b2, b0);
     }
 
+    @Test
+    public void testUndoRestoresDirections() {
+        Board b0 = new Board();
+        b0.setPieces("w---- ----- ----- ----- ----b", PieceColor.WHITE);
+        makeMoves(b0, new String[] { "a1-b1", "e5-d5", "b1-b2" });
+        b0.undo();
+        assertFalse(b0.legalMove(Move.parseMove("b1-a1")));
+        assertTrue(b0.legalMove(Move.parseMove("b1-c1")));
+    }
+
+    @Test
+    public void testUndoRestoresWinner() {
+        Board b0 = new Board();
+        b0.setPieces("w---- -b--- ----- ----- -----", PieceColor.WHITE);
+        Board b1 = new Board(b0);
+        makeMoves(b0, new String[] { "a1-c3" });
+        assertTrue(b0.gameOver());
+        assertEquals(PieceColor.WHITE, b0.getWinner());
+        b0.undo();
+        assertFalse(b0.gameOver());
+        assertNull(b0.getWinner());
+        assertEquals(b1, b0);
+    }
+
+    @Test
+    public void testKey() {
+        Board b0 = new Board();
+        long start = b0.key();
+        makeMoves(b0, GAME1);
+        Board b1 = new Board();
+        b1.setPieces("wwbww w--ww --www b--bb bb-bb", PieceColor.BLACK);
+        assertEquals(b1.key(), b0.key());
+        for (int i = 0; i < GAME1.length; i += 1) {
+            b0.undo();
+        }
+        assertEquals(start, b0.key());
+    }
+
+    @Test
+    public void testAdvancement() {
+        Board b0 = new Board();
+        assertEquals(9, b0.advancement(PieceColor.WHITE));
+        assertEquals(9, b0.advancement(PieceColor.BLACK));
+        makeMoves(b0, GAME1);
+        Board b1 = new Board();
+        b1.setPieces("wwbww w--ww --www b--bb bb-bb", PieceColor.BLACK);
+        assertEquals(b1.advancement(PieceColor.WHITE),
+                     b0.advancement(PieceColor.WHITE));
+        assertEquals(b1.advancement(PieceColor.BLACK),
+                     b0.advancement(PieceColor.BLACK));
+        for (int i = 0; i < GAME1.length; i += 1) {
+            b0.undo();
+        }
+        assertEquals(9, b0.advancement(PieceColor.WHITE));
+        assertEquals(9, b0.advancement(PieceColor.BLACK));
+    }
+
+    @Test
+    public void testMobility() {
+        Board b0 = new Board();
+        assertEquals(4, b0.mobility(PieceColor.WHITE));
+        assertEquals(4, b0.mobility(PieceColor.BLACK));
+        b0.setPieces("----- -w--- ----- ----- -b---", PieceColor.WHITE);
+        assertEquals(5, b0.mobility(PieceColor.WHITE));
+        assertEquals(3, b0.mobility(PieceColor.BLACK));
+    }
+
+    @Test
+    public void testKeyDirections() {
+        Board b0 = new Board(), b1 = new Board();
+        b0.setPieces("w---- ----- ----- ----- ----b", PieceColor.WHITE);
+        b1.setPieces("-w--- ----- ----- ----- ----b", PieceColor.BLACK);
+        makeMoves(b0, new String[] { "a1-b1" });
+        assertEquals(b1, b0);
+        assertNotEquals(b1.key(), b0.key());
+    }
+
     @Test
     public void testGet1() {
         Board b0 = new Board();
@@ -73,6 +152,17 @@ public class BoardTest {
         assertEquals(PieceColor.WHITE, b0.get(13));
     }
 
+    @Test
+    public void testCount() {
+        Board b0 = new Board();
+        assertEquals(12, b0.count(PieceColor.WHITE));
+        assertEquals(12, b0.count(PieceColor.BLACK));
+        assertEquals(1, b0.count(PieceColor.EMPTY));
+        makeMoves(b0, GAME1);
+        assertEquals(GAME1_BOARD.replaceAll("[^w]", "").length(),
+                     b0.count(PieceColor.WHITE));
+    }
+
     @Test
     public void testToString() {
         Board b0 = new Board();
@@ -94,11 +184,149 @@ public class BoardTest {
 
     }
 
+    @Test
+    public void testMultiJumps() {
+        Board b0 = new Board();
+        b0.setPieces("w---- -b-b- ----- -b-b- -----", PieceColor.WHITE);
+        assertEquals("[a1-c3-e1, a1-c3-a5, a1-c3-e5]",
+                     b0.getMoves().toString());
+    }
+
+    @Test
+    public void testEncodedMoves() {
+        Board b0 = new Board();
+        makeMoves(b0, GAME2);
+        long[] moves = new long[Board.MAX_MOVES];
+        assertEquals(1, b0.getMoves(moves));
+        assertEquals(Board.encode(GAME3), moves[0]);
+        assertSame(GAME3, b0.decode(moves[0]));
+        Board b1 = new Board(b0);
+        b0.makeMove(moves[0]);
+        b1.makeMove(GAME3);
+        assertEquals(b1, b0);
+        assertEquals(b1.key(), b0.key());
+        b0.undo();
+        b1.undo();
+        assertEquals(b1, b0);
+    }
+
     @Test
     public void testLegalMove() {
         Board b0 = new Board();
         makeMoves(b0, GAME2);
         assertEquals(true, b0.legalMove(GAME3));
     }
-}
 
+    @Test
+    public void testLegalMoveChanges() {
+        Board b0 = new Board();
+        Move first = Move.parseMove("c2-c3");
+        assertTrue(b0.legalMove(first));
+        b0.makeMove(first);
+        assertFalse(b0.legalMove(first));
+        assertTrue(b0.legalMove(Move.parseMove("c4-c2")));
+        b0.undo();
+        assertTrue(b0.legalMove(first));
+        assertFalse(b0.legalMove(Move.parseMove("c4-c2")));
+        Board b1 = new Board(b0);
+        b0.makeMove(first);
+        assertTrue(b1.legalMove(first));
+    }
+
+    @Test
+    public void testLegalMoveWithoutIndex() {
+        Board b0 = new Board();
+        long[] moves = new long[Board.MAX_MOVES];
+        String[] tries = { "c2-c3", "c4-c2", "c4-c3", "c1-c3", "a3-c1",
+                           "c3-a3", "b3-c3", "a3-a5-c3", "c5-c4" };
+        for (String s : GAME1) {
+            for (String t : tries) {
+                Move mov = Move.parseMove(t);
+                assertEquals(t, b0.legalMove(mov),
+                             b0.legalMove(mov, moves));
+            }
+            b0.makeMove(Move.parseMove(s));
+        }
+    }
+
+    @Test
+    public void testDecodeMultiJumps() {
+        Board b0 = new Board();
+        b0.setPieces("w---- -b-b- ----- -b-b- -----", PieceColor.WHITE);
+        long[] moves = new long[Board.MAX_MOVES];
+        int n = b0.getMoves(moves);
+        assertEquals(3, n);
+        for (int i = 0; i < n; i += 1) {
+            Move mov = b0.decode(moves[i]);
+            assertTrue(b0.legalMove(mov));
+            assertEquals(moves[i], Board.encode(mov));
+        }
+        assertFalse(b0.legalMove(Move.parseMove("a1-c3")));
+        assertNull(b0.decode(Board.encode(Move.parseMove("a1-c3"))));
+    }
+
+    @Test
+    public void testChanges() {
+        Board b0 = new Board();
+        Board view = b0.constantView();
+        ArrayList<BoardChange> changes = new ArrayList<>();
+        b0.addObserver((obs, arg) -> changes.add((BoardChange) arg));
+        b0.makeMove(Move.parseMove("c2-c3"));
+        b0.makeMove(Move.parseMove("c4-c2"));
+        assertEquals(2, changes.size());
+        BoardChange jump = changes.get(1);
+        assertEquals(BoardChange.Kind.MOVE, jump.kind());
+        assertEquals(Move.parseMove("c4-c2"), jump.move());
+        assertEquals(PieceColor.WHITE, jump.whoseMove());
+        assertEquals((1 << Move.index('c', '4')) | (1 << Move.index('c', '3'))
+                     | (1 << Move.index('c', '2')), jump.squares());
+        assertEquals(b0, view);
+        assertEquals(b0.key(), view.key());
+        assertEquals(b0.getStack(), view.getStack());
+        b0.undo();
+        assertEquals(BoardChange.Kind.UNDO, changes.get(2).kind());
+        assertEquals(jump.squares(), changes.get(2).squares());
+        assertEquals(b0, view);
+        assertEquals(b0.key(), view.key());
+        long[] moves = new long[Board.MAX_MOVES];
+        b0.getMoves(moves);
+        b0.makeMove(moves[0]);
+        b0.undo();
+        assertEquals(3, changes.size());
+        b0.setPieces("w---- ----- ----- ----- ----b", PieceColor.BLACK);
+        assertEquals(BoardChange.Kind.RESET, changes.get(3).kind());
+        assertEquals(b0, view);
+        assertEquals(b0.key(), view.key());
+    }
+
+    @Test
+    public void testSharedHistory() {
+        Board b0 = new Board();
+        makeMoves(b0, GAME1);
+        Board b1 = new Board(b0);
+        assertEquals(GAME1.length, b1.moveCount());
+        assertEquals(b0.getStack(), b1.getStack());
+        b1.undo();
+        b1.undo();
+        assertEquals(GAME1.length, b0.moveCount());
+        assertEquals(GAME1.length - 2, b1.moveCount());
+        assertEquals(b0.getStack().subList(0, GAME1.length - 2),
+                     b1.getStack());
+        long[] moves = new long[Board.MAX_MOVES];
+        b1.getMoves(moves);
+        b1.makeMove(moves[0]);
+        Board b2 = new Board(b1);
+        b2.undo();
+        assertEquals(GAME1.length - 2, b2.moveCount());
+        b2.undo();
+        assertEquals(GAME1.length - 3, b2.moveCount());
+        b1.undo();
+        b1.undo();
+        assertEquals(b2, b1);
+        for (int i = 0; i < GAME1.length; i += 1) {
+            b0.undo();
+        }
+        assertEquals(new Board(), b0);
+        assertEquals(0, b0.moveCount());
+    }
+}
@@ -82,7 +82,21 @@ class BoardWidget extends Pad implements Observer {
 
     @Override
     public synchronized void update(Observable model, Object arg) {
-        repaint();
+        if (arg instanceof BoardChange
+            && ((BoardChange) arg).kind() != BoardChange.Kind.RESET) {
+            int squares = ((BoardChange) arg).squares();
+            for (int m = squares; m != 0; m &= m - 1) {
+                repaintSquare(Integer.numberOfTrailingZeros(m));
+            }
+        } else {
+            repaint();
+        }
+    }
+
+    /** Repaint the square whose linearized index is K. */
+    private void repaintSquare(int k) {
+        int col = k % SIDE, row = k / SIDE;
+        repaint(col * SQDIM, (SIDE - 1 - row) * SQDIM, SQDIM, SQDIM);
     }
 
     /** Dimension of current drawing surface in pixels. */
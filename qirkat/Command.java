@@ -1,53 +1,81 @@
 package qirkat;
 
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-
-import static qirkat.PieceColor.*;
+import java.util.Arrays;
 
 /** All things to do with parsing commands.
  *  @author Chelsea Chen
  */
 class Command {
 
+    /** The kinds of operand a command may take. */
+    private static enum Operand {
+        /** "white" or "black". */
+        COLOR,
+        /** A string of decimal digits. */
+        NUMBER,
+        /** "on" or "off". */
+        SWITCH,
+        /** Any string of non-whitespace characters. */
+        WORD,
+        /** 25 board squares, each 'b', 'w', or '-', optionally separated
+         *  by whitespace, running to the end of the command. */
+        BOARD
+    }
+
     /** Command types.  PIECEMOVE indicates a move of the form
      *  c0r0-c1r1.  ERROR indicates a parse error in the command.
      *  All other commands are upper-case versions of what the
      *  programmer writes. */
     static enum Type {
         /* Start-up state only. */
-        AUTO("(?i)auto\\s+(white|black)"),
-        MANUAL("(?i)manual\\s+(white|black)"),
-        SEED("seed\\s+(\\d+)"),
+        AUTO("auto", true, Operand.COLOR),
+        MANUAL("manual", true, Operand.COLOR),
+        SEED(Operand.NUMBER),
+        TIME(Operand.NUMBER),
+        THREADS(Operand.NUMBER),
+        PONDER(Operand.SWITCH),
         START,
-        SETBOARD("(?i)set\\s+(white|black)\\s+((?:[bw-]\\s*){25})"),
+        SETBOARD("set", true, Operand.COLOR, Operand.BOARD),
         /* Regular moves (set-up or play) */
-        PIECEMOVE("([a-e][1-5](?:-[a-e][1-5])+)"),
+        PIECEMOVE(null, false),
         /* Valid at any time. */
-        LOAD("load\\s+(\\S+)"),
+        LOAD(Operand.WORD),
+        REPLAY(Operand.WORD),
+        PERFT(Operand.NUMBER),
+        DIVIDE(Operand.NUMBER),
         QUIT, CLEAR, DUMP, HELP,
         /* Special "commands" internally generated. */
         /** Syntax error in command. */
-        ERROR(".*"),
+        ERROR(null, false),
         /** End of input stream. */
-        EOF;
-
-        /** PATTERN is a regular expression string giving the syntax of
-         *  a command of the given type.  It matches the entire command,
-         *  assuming no leading or trailing whitespace.  The groups in
-         *  the pattern capture the operands (if any). */
-        Type(String pattern) {
-            _pattern = Pattern.compile(pattern + "$");
+        EOF(null, false);
+
+        /** A Type whose commands start with KEYWORD (null if they are not
+         *  introduced by a keyword), followed by operands of the kinds
+         *  OPERANDS, each preceded by whitespace.  The keyword and any
+         *  COLOR or BOARD operands are matched without regard to case
+         *  iff IGNORECASE. */
+        Type(String keyword, boolean ignoreCase, Operand... operands) {
+            _keyword = keyword;
+            _ignoreCase = ignoreCase;
+            _operands = operands;
         }
 
-        /** A Type whose pattern is the lower-case version of its name. */
-        Type() {
-            _pattern = Pattern.compile(this.toString().toLowerCase() + "$");
+        /** A Type whose keyword is the lower-case version of its name,
+         *  matched exactly, taking operands of the kinds OPERANDS. */
+        Type(Operand... operands) {
+            _keyword = this.toString().toLowerCase();
+            _ignoreCase = false;
+            _operands = operands;
         }
 
-        /** The Pattern descrbing syntactically correct versions of this
-         *  type of command. */
-        private final Pattern _pattern;
+        /** The word that introduces commands of this type, or null. */
+        private final String _keyword;
+        /** True iff the keyword and letters in operands may be in either
+         *  case. */
+        private final boolean _ignoreCase;
+        /** The kinds of operand taken by this type of command. */
+        private final Operand[] _operands;
 
     }
 
@@ -67,23 +95,175 @@ class Command {
         return _operands;
     }
 
-    /** Parse COMMAND, returning the command and its operands. */
+    /** Parse COMMAND, returning the command and its operands.  The
+     *  command is classified by its first word alone: a move if it
+     *  starts with a square, and otherwise the type with that keyword,
+     *  whose operands are then scanned in a single pass. */
     static Command parseCommand(String command) {
         if (command == null) {
             return new Command(Type.EOF);
         }
         command = command.trim();
-        for (Type type : Type.values()) {
-            Matcher mat = type._pattern.matcher(command);
-            if (mat.matches()) {
-                String[] operands = new String [mat.groupCount()];
-                for (int i = 1; i <= operands.length; i += 1) {
-                    operands[i - 1] = mat.group(i);
+        if (command.length() >= 2
+            && Move.validSquare(command.charAt(0), command.charAt(1))) {
+            if (Move.validDenotation(command)) {
+                return new Command(Type.PIECEMOVE, command);
+            }
+            return new Command(Type.ERROR);
+        }
+        int end = 0;
+        while (end < command.length() && !isSpace(command.charAt(end))) {
+            end += 1;
+        }
+        for (Type type : KEYWORD_TYPES) {
+            if (matches(command, 0, end, type._keyword, type._ignoreCase)) {
+                String[] operands = parseOperands(command, end, type);
+                if (operands != null) {
+                    return new Command(type, operands);
                 }
-                return new Command(type, operands);
+                break;
+            }
+        }
+        return new Command(Type.ERROR);
+    }
+
+    /** Return the operands of a command of type TYPE in COMMAND, which
+     *  follow its keyword, starting at index START, or null if they are
+     *  malformed or are followed by anything else. */
+    private static String[] parseOperands(String command, int start,
+                                          Type type) {
+        String[] result = new String[type._operands.length];
+        int k = start;
+        for (int i = 0; i < result.length; i += 1) {
+            int first = k;
+            while (k < command.length() && isSpace(command.charAt(k))) {
+                k += 1;
+            }
+            if (k == first) {
+                return null;
+            }
+            int end = scanOperand(command, k, type._operands[i],
+                                  type._ignoreCase);
+            if (end < 0) {
+                return null;
+            }
+            result[i] = command.substring(k, end);
+            k = end;
+        }
+        return k == command.length() ? result : null;
+    }
+
+    /** Return the index just past an operand of kind KIND that starts
+     *  at index START of COMMAND and is followed by whitespace or the
+     *  end of COMMAND, or -1 if there is no such operand.  Letters in
+     *  COLOR and BOARD operands may be in either case iff IGNORECASE. */
+    private static int scanOperand(String command, int start, Operand kind,
+                                   boolean ignoreCase) {
+        int end = start;
+        switch (kind) {
+        case BOARD:
+            for (int n = 0; n < SQUARES; n += 1) {
+                if (end > start) {
+                    while (end < command.length()
+                           && isSpace(command.charAt(end))) {
+                        end += 1;
+                    }
+                }
+                if (end == command.length()
+                    || !isPiece(command.charAt(end), ignoreCase)) {
+                    return -1;
+                }
+                end += 1;
+            }
+            return end;
+        case NUMBER:
+            while (end < command.length() && isDigit(command.charAt(end))) {
+                end += 1;
+            }
+            break;
+        default:
+            while (end < command.length() && !isSpace(command.charAt(end))) {
+                end += 1;
+            }
+            break;
+        }
+        if (end == start
+            || end < command.length() && !isSpace(command.charAt(end))) {
+            return -1;
+        }
+        switch (kind) {
+        case COLOR:
+            if (!matches(command, start, end, "white", ignoreCase)
+                && !matches(command, start, end, "black", ignoreCase)) {
+                return -1;
+            }
+            break;
+        case SWITCH:
+            if (!matches(command, start, end, "on", false)
+                && !matches(command, start, end, "off", false)) {
+                return -1;
+            }
+            break;
+        default:
+            break;
+        }
+        return end;
+    }
+
+    /** Return true iff COMMAND[START .. END-1] is WORD, or, if
+     *  IGNORECASE, differs from it only in the case of ASCII letters. */
+    private static boolean matches(String command, int start, int end,
+                                   String word, boolean ignoreCase) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i += 1) {
+            char c = command.charAt(start + i);
+            if (ignoreCase && c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return true iff C is a whitespace character (as for \s in a
+     *  regular expression). */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000b'
+            || c == '\f' || c == '\r';
+    }
+
+    /** Return true iff C is an ASCII decimal digit. */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /** Return true iff C denotes the contents of a square in a 'set'
+     *  command, allowing upper-case letters iff IGNORECASE. */
+    private static boolean isPiece(char c, boolean ignoreCase) {
+        return c == 'b' || c == 'w' || c == '-'
+            || ignoreCase && (c == 'B' || c == 'W');
+    }
+
+    /** Number of squares described by a BOARD operand. */
+    private static final int SQUARES = Move.SIDE * Move.SIDE;
+
+    /** The Types that are introduced by keywords. */
+    private static final Type[] KEYWORD_TYPES;
+
+    static {
+        int n = 0;
+        Type[] types = new Type[Type.values().length];
+        for (Type type : Type.values()) {
+            if (type._keyword != null) {
+                types[n] = type;
+                n += 1;
             }
         }
-        throw new Error("Internal failure: error command did not match.");
+        KEYWORD_TYPES = Arrays.copyOf(types, n);
     }
 
     /** The command name. */
@@ -43,6 +43,33 @@ public class CommandTest {
         checkError("seed 142 foo");
     }
 
+    @Test public void testTIME() {
+        check("time 500", TIME, "500");
+        checkError("time");
+        checkError("time 1.5");
+        checkError("time 500 foo");
+    }
+
+    @Test public void testTHREADS() {
+        check("threads 4", THREADS, "4");
+        checkError("threads");
+        checkError("threads four");
+    }
+
+    @Test public void testPONDER() {
+        check("ponder on", PONDER, "on");
+        check("ponder off", PONDER, "off");
+        checkError("ponder");
+        checkError("ponder maybe");
+    }
+
+    @Test public void testPERFT() {
+        check("perft 5", PERFT, "5");
+        check("divide 3", DIVIDE, "3");
+        checkError("perft");
+        checkError("divide x");
+    }
+
     @Test public void testSTART() {
         check("start", START);
         checkError("start foo");
@@ -58,6 +85,35 @@ public class CommandTest {
         checkError("clear foo");
     }
 
+    @Test public void testMANUAL() {
+        check("manual black", MANUAL, "black");
+        check("  MANUAL\tWhite ", MANUAL, "White");
+        checkError("manualwhite");
+        checkError("Seed 1");
+    }
+
+    @Test public void testSETBOARD() {
+        String pieces = "wwwww wwwww ww-bb bbbbb bbbbb";
+        check("set white " + pieces, SETBOARD, "white", pieces);
+        check("SET Black " + pieces.toUpperCase(), SETBOARD, "Black",
+              pieces.toUpperCase());
+        checkError("set white " + pieces + " b");
+        checkError("set white " + pieces.substring(1));
+        checkError("set white" + pieces);
+        checkError("set green " + pieces);
+    }
+
+    @Test public void testLOAD() {
+        check("load games/x.inp", LOAD, "games/x.inp");
+        checkError("load");
+        checkError("load a b");
+    }
+
+    @Test public void testREPLAY() {
+        check("replay games.qgr", REPLAY, "games.qgr");
+        checkError("replay");
+    }
+
     @Test public void testMOVE() {
         check("a3-b3", PIECEMOVE, "a3-b3");
         checkError("a3b3");
@@ -66,6 +122,10 @@ public class CommandTest {
         checkError("h3-g3");
         checkError("a0-a1");
         checkError("a7-a8");
+        check("a3-a5-c3-e1", PIECEMOVE, "a3-a5-c3-e1");
+        checkError("a3-a5-");
+        checkError("a3--a5");
+        checkError("a3");
     }
 
 }
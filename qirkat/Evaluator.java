@@ -0,0 +1,20 @@
+package qirkat;
+
+/** A static evaluation function, used by an AI to score the positions
+ *  at the leaves of its search.
+ *  @author Chelsea Chen
+ */
+interface Evaluator {
+
+    /** Return a heuristic value of BOARD, on which the game is not over,
+     *  for player WHO: positive if the position favors WHO, and negative
+     *  if it favors the opponent.  The magnitude of the result must be
+     *  less than Integer.MAX_VALUE, which denotes a won game. */
+    int evaluate(Board board, PieceColor who);
+
+    /** Return the value of a single piece on the scale of evaluate: the
+     *  amount by which capturing one piece typically changes a score.
+     *  An AI sizes its aspiration windows by this value. */
+    int pieceValue();
+
+}
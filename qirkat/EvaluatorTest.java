@@ -0,0 +1,36 @@
+package qirkat;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static qirkat.PieceColor.*;
+
+/** Tests of the Evaluators.
+ *  @author Chelsea Chen
+ */
+public class EvaluatorTest {
+
+    @Test
+    public void testMaterial() {
+        Evaluator eval = new MaterialEvaluator();
+        Board b = new Board();
+        assertEquals(0, eval.evaluate(b, WHITE));
+        b.setPieces("ww-w- ----- ----- ----- b----", WHITE);
+        assertEquals(2, eval.evaluate(b, WHITE));
+        assertEquals(-2, eval.evaluate(b, BLACK));
+        assertEquals(1, eval.pieceValue());
+    }
+
+    @Test
+    public void testWeighted() {
+        Board b = new Board();
+        b.setPieces("ww--- ---w- ----- ----- b----", WHITE);
+        assertEquals(200, new WeightedEvaluator(100, 0, 0).evaluate(b, WHITE));
+        assertEquals(1, new WeightedEvaluator(0, 1, 0).evaluate(b, WHITE));
+        assertEquals(6, new WeightedEvaluator(0, 0, 1).evaluate(b, WHITE));
+        Evaluator eval = WeightedEvaluator.DEFAULT;
+        assertEquals(0, eval.evaluate(new Board(), WHITE));
+        assertEquals(-eval.evaluate(b, WHITE), eval.evaluate(b, BLACK));
+        assertEquals(100, eval.pieceValue());
+    }
+}
@@ -115,6 +115,10 @@ class GUI extends TopLevel implements Observer, Reporter {
     public void moveMsg(String format, Object... args) {
     }
 
+    @Override
+    public void statsMsg(String format, Object... args) {
+    }
+
     @Override
     public void update(Observable obs, Object arg) {
         if (obs == _model) {
@@ -9,6 +9,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Random;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 
 import static qirkat.PieceColor.*;
@@ -67,13 +68,19 @@ class Game {
                                 PieceColor.capitalize(
                                 me.myColor().toString())
                                 + " moves " + move.toString() + ".");
+                        Player opponent = me == white ? black : white;
+                        if (_pondering && !(opponent instanceof AI)) {
+                            ((AI) me).ponder();
+                        }
                     }
                 } else {
                     doCommand();
                 }
             }
+            stopPondering();
             if (_state == PLAYING) {
                 reportWinner();
+                recordGame();
             }
             _state = SETUP;
         }
@@ -118,6 +125,46 @@ class Game {
         return null;
     }
 
+    /** Return the time in milliseconds that an AI may spend choosing a
+     *  move. */
+    long timeLimit() {
+        return _timeLimit;
+    }
+
+    /** Return the number of threads an AI may use to search for a
+     *  move. */
+    int threads() {
+        return _threads;
+    }
+
+    /** Return the endgame tablebase available to AIs, or null if there
+     *  is none. */
+    Tablebase tablebase() {
+        return _tablebase;
+    }
+
+    /** Make TABLEBASE (null for none) available to AIs. */
+    void setTablebase(Tablebase tablebase) {
+        _tablebase = tablebase;
+    }
+
+    /** Return the opening book consulted by AIs, or null if there is
+     *  none. */
+    OpeningBook openingBook() {
+        return _openingBook;
+    }
+
+    /** Make BOOK (null for none) the opening book consulted by AIs. */
+    void setOpeningBook(OpeningBook book) {
+        _openingBook = book;
+    }
+
+    /** Append a record of each game finished hereafter to RECORDER (none
+     *  if null). */
+    void setRecorder(GameRecord.Writer recorder) {
+        _recorder = recorder;
+    }
+
     /** Return random integer between 0 (inclusive) and MAX>0 (exclusive). */
     int nextRandom(int max) {
         return _randoms.nextInt(max);
@@ -129,6 +176,12 @@ class Game {
         _reporter.moveMsg(format, args);
     }
 
+    /** Report search statistics, using a message formed from FORMAT and
+     *  ARGS as for String.format. */
+    void reportStats(String format, Object... args) {
+        _reporter.statsMsg(format, args);
+    }
+
     /** Report an error, using a message formed from FORMAT and ARGS as
      *  for String.format. */
     void reportError(String format, Object... args) {
@@ -140,6 +193,7 @@ class Game {
     /** Perform the command 'auto OPERANDS[0]'. */
     void doAuto(String[] operands) {
         _state = SETUP;
+        stopPondering();
         if (operands[0].equals("White")) {
             white = new AI(this, WHITE);
         }
@@ -184,9 +238,27 @@ class Game {
         }
     }
 
+    /** Perform the command 'replay OPERANDS[0]'. */
+    void doReplay(String[] operands) {
+        Replay replay = new Replay(operands[0]);
+        try {
+            replay.run();
+        } catch (IOException excp) {
+            throw error("Cannot read file %s", operands[0]);
+        }
+        for (String error : replay.errors()) {
+            _reporter.errMsg("%s", error);
+        }
+        if (!replay.records()) {
+            dump(replay.board());
+        }
+        _reporter.outcomeMsg("%s", replay);
+    }
+
     /** Perform the command 'manual OPERANDS[0]'. */
     void doManual(String[] operands) {
         _state = SETUP;
+        stopPondering();
         if (operands[0].equals("White")) {
             white = new Manual(this, WHITE);
         }
@@ -198,6 +270,13 @@ class Game {
     /** Exit the program. */
     void doQuit(String[] unused) {
         Main.reportTotalTimes();
+        if (_recorder != null) {
+            try {
+                _recorder.close();
+            } catch (IOException excp) {
+                _reporter.errMsg("Could not write game record");
+            }
+        }
         System.exit(0);
     }
 
@@ -218,6 +297,7 @@ class Game {
     /** Perform the command 'clear'. */
     void doClear(String[] unused) {
         _state = SETUP;
+        stopPondering();
         _board.clear();
         white = new Manual(this, WHITE);
         black = new AI(this, BLACK);
@@ -235,8 +315,13 @@ class Game {
 
     /** Perform the command 'dump'. */
     void doDump(String[] unused) {
+        dump(_board);
+    }
+
+    /** Print BOARD in the format of the 'dump' command. */
+    static void dump(Board board) {
         System.out.println("===");
-        System.out.println(_board.toString());
+        System.out.println(board.toString());
         System.out.println("===");
     }
 
@@ -251,11 +336,123 @@ class Game {
         }
     }
 
+    /** Execute 'time OPERANDS[0]' command, where the operand is a string
+     *  of decimal digits giving the time allowed per AI move in
+     *  milliseconds. Silently substitutes MAX_TIME_LIMIT if too large. */
+    void doTime(String[] operands) {
+        try {
+            _timeLimit = Math.min(Long.parseLong(operands[0]),
+                                  MAX_TIME_LIMIT);
+        } catch (NumberFormatException e) {
+            _timeLimit = MAX_TIME_LIMIT;
+        }
+    }
+
+    /** Execute 'threads OPERANDS[0]' command, where the operand is a
+     *  string of decimal digits giving the number of threads each AI may
+     *  use, or 0 to use one per available processor. */
+    void doThreads(String[] operands) {
+        int n;
+        try {
+            n = Integer.parseInt(operands[0]);
+        } catch (NumberFormatException e) {
+            n = 0;
+        }
+        if (n == 0) {
+            n = Runtime.getRuntime().availableProcessors();
+        }
+        _threads = Math.min(n, MAX_THREADS);
+    }
+
+    /** Execute 'ponder OPERANDS[0]' command, where the operand is "on"
+     *  or "off", turning pondering by AIs on or off. */
+    void doPonder(String[] operands) {
+        _pondering = operands[0].equals("on");
+        if (!_pondering) {
+            stopPondering();
+        }
+    }
+
+    /** Stop any pondering by either player. */
+    private void stopPondering() {
+        white.stopPondering();
+        black.stopPondering();
+    }
+
+    /** Execute 'perft OPERANDS[0]' command, reporting the number of
+     *  move sequences of the given length from the current position and
+     *  the rate at which they were generated. */
+    void doPerft(String[] operands) {
+        int depth = perftDepth(operands[0]);
+        long start = System.nanoTime();
+        long nodes = Perft.perft(_board, depth, _threads);
+        reportPerft(depth, nodes, System.nanoTime() - start);
+    }
+
+    /** Execute 'divide OPERANDS[0]' command, which is like 'perft', but
+     *  also reports the count following each legal move. */
+    void doDivide(String[] operands) {
+        int depth = perftDepth(operands[0]);
+        if (depth == 0) {
+            throw error("Depth must be positive");
+        }
+        long start = System.nanoTime();
+        TreeMap<String, Long> counts = Perft.divide(_board, depth, _threads);
+        long time = System.nanoTime() - start;
+        long nodes = 0;
+        for (String move : counts.keySet()) {
+            _reporter.moveMsg("%s: %d", move, counts.get(move));
+            nodes += counts.get(move);
+        }
+        reportPerft(depth, nodes, time);
+    }
+
+    /** Return the perft depth denoted by the string of decimal digits
+     *  DEPTH. */
+    private int perftDepth(String depth) {
+        try {
+            int result = Integer.parseInt(depth);
+            if (result <= MAX_PERFT_DEPTH) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            /* Fall through. */
+        }
+        throw error("Depth must be at most %d", MAX_PERFT_DEPTH);
+    }
+
+    /** Report a perft count of NODES to depth DEPTH, taking NANOS
+     *  nanoseconds. */
+    private void reportPerft(int depth, long nodes, long nanos) {
+        _reporter.moveMsg("Perft %d: %d nodes in %d msec (%.0f nodes/sec)",
+                          depth, nodes, nanos / 1_000_000L,
+                          nodes * 1e9 / Math.max(nanos, 1));
+    }
+
     /** Execute the artificial 'error' command. */
     void doError(String[] unused) {
         throw error("Command not understood");
     }
 
+    /** Append a record of the game just finished to _recorder, if
+     *  any. */
+    private void recordGame() {
+        if (_recorder != null) {
+            try {
+                _recorder.write(new GameRecord(_board, playerName(white),
+                                               playerName(black)));
+                _recorder.flush();
+            } catch (IOException excp) {
+                _reporter.errMsg("Could not write game record");
+            }
+        }
+    }
+
+    /** Return the name used in game records for PLAYER. */
+    private static String playerName(Player player) {
+        return player instanceof AI ? "AI" : "Manual";
+    }
+
     /** Report the outcome of the current game. */
     void reportWinner() {
         String msg;
@@ -276,9 +473,15 @@ class Game {
         _commands.put(MANUAL, this::doManual);
         _commands.put(PIECEMOVE, this::doMove);
         _commands.put(SEED, this::doSeed);
+        _commands.put(TIME, this::doTime);
+        _commands.put(THREADS, this::doThreads);
+        _commands.put(PONDER, this::doPonder);
         _commands.put(SETBOARD, this::doSet);
         _commands.put(START, this::doStart);
         _commands.put(LOAD, this::doLoad);
+        _commands.put(REPLAY, this::doReplay);
+        _commands.put(PERFT, this::doPerft);
+        _commands.put(DIVIDE, this::doDivide);
         _commands.put(QUIT, this::doQuit);
         _commands.put(ERROR, this::doError);
         _commands.put(EOF, this::doQuit);
@@ -299,6 +502,37 @@ class Game {
     /** Used to send messages to the user. */
     private Reporter _reporter;
 
+    /** Default value of _timeLimit. */
+    static final long DEFAULT_TIME_LIMIT = 1000;
+
+    /** Time allowed per AI move (milliseconds). */
+    private long _timeLimit = DEFAULT_TIME_LIMIT;
+
+    /** Largest allowed value of _timeLimit: the largest whose value in
+     *  nanoseconds fits in a long. */
+    static final long MAX_TIME_LIMIT = Long.MAX_VALUE / 1_000_000L;
+
+    /** Largest allowed value of _threads. */
+    static final int MAX_THREADS = 256;
+
+    /** Number of threads used by an AI's search. */
+    private int _threads = 1;
+
+    /** True iff AIs ponder while a manual player is on move. */
+    private boolean _pondering;
+
+    /** Largest depth accepted by perft and divide. */
+    static final int MAX_PERFT_DEPTH = 64;
+
+    /** Endgame tablebase used by AIs, or null. */
+    private Tablebase _tablebase;
+
+    /** Opening book used by AIs, or null. */
+    private OpeningBook _openingBook;
+
+    /** Where finished games are recorded, or null. */
+    private GameRecord.Writer _recorder;
+
     /** Source of pseudo-random numbers (used by AIs). */
     private Random _randoms = new Random();
 
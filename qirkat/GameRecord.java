@@ -0,0 +1,479 @@
+package qirkat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.*;
+import static qirkat.PieceColor.*;
+
+/** The record of one game: the players' names, the starting position,
+ *  the moves, and the winner, if the game finished.
+ *
+ *  Records are kept in files written by a GameRecord.Writer and read by
+ *  a GameRecord.Reader.  A file is an int, MAGIC, followed by any number
+ *  of records, each an int giving its length in bytes followed by:
+ *  <ul>
+ *  <li> the names of White and of Black, each a short length followed
+ *       by that many bytes of UTF-8;
+ *  <li> a flags byte, whose low bit is set iff the game did not start
+ *       from the initial position, and whose next two bits are 0 for an
+ *       unfinished game, 1 if White won, and 2 if Black won;
+ *  <li> if the low flags bit is set, the starting position: four ints
+ *       giving the masks of White's pieces, Black's pieces, and pieces
+ *       that last moved left and right (see Board.setPosition), and a
+ *       byte that is 0 if White is to move and 1 if Black is;
+ *  <li> a short giving the number of moves;
+ *  <li> the moves.  A move of K legs (K = 1 unless it is a multiple
+ *       jump) from square S (see Move.index) is a byte S + 32 * K if
+ *       K < 8, or a byte S followed by a byte K otherwise, followed by
+ *       K bytes giving the squares on which the legs end.
+ *  </ul>
+ *  A non-capturing move thus takes two bytes.  Multi-byte numbers are
+ *  big-endian.
+ *  @author Chelsea Chen
+ */
+class GameRecord {
+
+    /** Print the records in each of the files named by ARGS as text. */
+    public static void main(String... args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java qirkat.GameRecord FILE...");
+            System.exit(1);
+        }
+        for (String fileName : args) {
+            try (Reader reader = new Reader(fileName)) {
+                for (GameRecord game = reader.next(); game != null;
+                     game = reader.next()) {
+                    System.out.println(game);
+                }
+            } catch (IOException excp) {
+                System.err.printf("Could not read %s: %s%n", fileName,
+                                  excp.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    /** The record of the game played so far on BOARD, whose players are
+     *  named WHITENAME and BLACKNAME.  BOARD is unchanged. */
+    GameRecord(Board board, String whiteName, String blackName) {
+        _whiteName = whiteName;
+        _blackName = blackName;
+        _moves = new ArrayList<>(board.getStack());
+        _start = new Board(board);
+        for (int i = 0; i < _moves.size(); i += 1) {
+            _start.undo();
+        }
+        _winner = board.gameOver() ? board.getWinner() : null;
+    }
+
+    /** A record of a game between WHITENAME and BLACKNAME starting at
+     *  START that consisted of MOVES and was won by WINNER (null if
+     *  unfinished). */
+    private GameRecord(String whiteName, String blackName, Board start,
+                       List<Move> moves, PieceColor winner) {
+        _whiteName = whiteName;
+        _blackName = blackName;
+        _start = start;
+        _moves = moves;
+        _winner = winner;
+    }
+
+    /** Return the name of the player of color C. */
+    String name(PieceColor c) {
+        return c == WHITE ? _whiteName : _blackName;
+    }
+
+    /** Return a copy of the starting position. */
+    Board start() {
+        return new Board(_start);
+    }
+
+    /** Return the moves, in order. */
+    List<Move> moves() {
+        return _moves;
+    }
+
+    /** Return the winner, or null if the game was not finished. */
+    PieceColor winner() {
+        return _winner;
+    }
+
+    /** Return the game as text, in the manner of Portable Game Notation:
+     *  tags giving the players, the result, and any non-initial starting
+     *  position (in the form accepted by the 'set' command), followed by
+     *  the numbered moves and the result. */
+    @Override
+    public String toString() {
+        String result = _winner == null ? "*"
+            : _winner == WHITE ? "1-0" : "0-1";
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("[White \"%s\"]%n[Black \"%s\"]%n"
+                                 + "[Result \"%s\"]%n",
+                                 _whiteName, _blackName, result));
+        if (!isInitial(_start)) {
+            StringBuilder pieces = new StringBuilder();
+            for (int k = 0; k <= Move.MAX_INDEX; k += 1) {
+                if (k > 0 && k % Move.SIDE == 0) {
+                    pieces.append(' ');
+                }
+                pieces.append(_start.get(k).shortName());
+            }
+            String side = _start.whoseMove().toString().toLowerCase();
+            out.append(String.format("[Position \"%s %s\"]%n", side,
+                                     pieces));
+        }
+        out.append(String.format("%n"));
+        int lineLength = 0;
+        int number = 1;
+        boolean white = _start.whoseMove() == WHITE;
+        for (int i = 0; i < _moves.size(); i += 1) {
+            String text = _moves.get(i).toString();
+            if (white) {
+                text = number + ". " + text;
+            } else if (i == 0) {
+                text = number + "... " + text;
+            }
+            if (!white) {
+                number += 1;
+            }
+            white = !white;
+            if (lineLength > 0 && lineLength + 1 + text.length() > LINE) {
+                out.append(String.format("%n"));
+                lineLength = 0;
+            } else if (lineLength > 0) {
+                out.append(' ');
+                lineLength += 1;
+            }
+            out.append(text);
+            lineLength += text.length();
+        }
+        if (lineLength > 0) {
+            out.append(' ');
+        }
+        out.append(result).append(String.format("%n"));
+        return out.toString();
+    }
+
+    /** Return true iff BOARD is in the initial position. */
+    private static boolean isInitial(Board board) {
+        return board.key() == INITIAL_KEY
+            && board.whoseMove() == WHITE;
+    }
+
+    /** Return the number of bytes in my encoding, excluding its length
+     *  prefix. */
+    private int encodedSize() {
+        int size = 2 + utf8(_whiteName).length + 2 + utf8(_blackName).length
+            + 1 + 2;
+        if (!isInitial(_start)) {
+            size += START_SIZE;
+        }
+        for (Move mov : _moves) {
+            int legs = legs(mov);
+            size += (legs < LONG_CHAIN ? 1 : 2) + legs;
+        }
+        return size;
+    }
+
+    /** Append my encoding, including its length prefix, to DATA, which
+     *  must have room for it. */
+    private void encode(ByteBuffer data) {
+        data.putInt(encodedSize());
+        putString(data, _whiteName);
+        putString(data, _blackName);
+        boolean initial = isInitial(_start);
+        int result = _winner == null ? 0 : _winner == WHITE ? 1 : 2;
+        data.put((byte) ((initial ? 0 : 1) | result << 1));
+        if (!initial) {
+            data.putInt(_start.pieces(WHITE)).putInt(_start.pieces(BLACK))
+                .putInt(_start.movedLeft()).putInt(_start.movedRight())
+                .put((byte) (_start.whoseMove() == WHITE ? 0 : 1));
+        }
+        data.putShort((short) _moves.size());
+        for (Move mov : _moves) {
+            int legs = legs(mov);
+            if (legs < LONG_CHAIN) {
+                data.put((byte) (mov.fromIndex() | legs << SQUARE_BITS));
+            } else {
+                data.put((byte) mov.fromIndex()).put((byte) legs);
+            }
+            for (Move leg = mov; leg != null; leg = leg.jumpTail()) {
+                data.put((byte) leg.toIndex());
+            }
+        }
+    }
+
+    /** Return the record encoded in DATA, starting after its length
+     *  prefix.  Throws IOException if DATA does not hold a valid
+     *  record. */
+    private static GameRecord decode(ByteBuffer data) throws IOException {
+        try {
+            String whiteName = getString(data), blackName = getString(data);
+            int flags = data.get();
+            Board start = new Board();
+            if ((flags & 1) != 0) {
+                int white = data.getInt(), black = data.getInt(),
+                    left = data.getInt(), right = data.getInt();
+                start.setPosition(white, black, left, right,
+                                  data.get() == 0 ? WHITE : BLACK);
+            }
+            PieceColor winner = (flags & 6) == 2 ? WHITE
+                : (flags & 6) == 4 ? BLACK : null;
+            int numMoves = data.getShort() & 0xffff;
+            ArrayList<Move> moves = new ArrayList<>(numMoves);
+            int[] squares = new int[Move.MAX_INDEX + 2];
+            for (int i = 0; i < numMoves; i += 1) {
+                int first = data.get() & 0xff;
+                int legs = first >> SQUARE_BITS;
+                squares[0] = first & ((1 << SQUARE_BITS) - 1);
+                if (legs == 0) {
+                    legs = data.get() & 0xff;
+                }
+                if (legs == 0 || legs > Move.MAX_INDEX) {
+                    throw new IOException("bad move in game record");
+                }
+                for (int k = 1; k <= legs; k += 1) {
+                    squares[k] = data.get();
+                }
+                Move mov = null;
+                for (int k = legs; k > 0; k -= 1) {
+                    if (!Move.validSquare(squares[k - 1])
+                        || !Move.validSquare(squares[k])) {
+                        throw new IOException("bad square in game record");
+                    }
+                    mov = Move.move(squares[k - 1], squares[k], mov);
+                }
+                moves.add(mov);
+            }
+            return new GameRecord(whiteName, blackName, start, moves, winner);
+        } catch (RuntimeException excp) {
+            throw new IOException("bad game record", excp);
+        }
+    }
+
+    /** Return the number of legs of MOV. */
+    private static int legs(Move mov) {
+        int legs = 0;
+        for (Move leg = mov; leg != null; leg = leg.jumpTail()) {
+            legs += 1;
+        }
+        return legs;
+    }
+
+    /** Return S encoded in UTF-8. */
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Append S to DATA as a short length followed by its UTF-8
+     *  bytes. */
+    private static void putString(ByteBuffer data, String s) {
+        byte[] bytes = utf8(s);
+        data.putShort((short) bytes.length).put(bytes);
+    }
+
+    /** Return the string at the start of DATA, as written by
+     *  putString. */
+    private static String getString(ByteBuffer data) {
+        byte[] bytes = new byte[data.getShort() & 0xffff];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Appends records to a file, buffering them so that writing many
+     *  small records costs few system calls.  Records are written whole,
+     *  in the order given; write may be called from several threads. */
+    static class Writer implements AutoCloseable {
+
+        /** A Writer that appends to the file named FILENAME, creating it
+         *  if necessary. */
+        Writer(String fileName) throws IOException {
+            _channel = FileChannel.open(Paths.get(fileName), CREATE, WRITE,
+                                        APPEND);
+            if (_channel.size() == 0) {
+                _buffer.putInt(MAGIC);
+            }
+        }
+
+        /** Append GAME to my file, recording at most MAX_MOVES moves. */
+        synchronized void write(GameRecord game) throws IOException {
+            if (game._moves.size() > MAX_MOVES) {
+                game = new GameRecord(game._whiteName, game._blackName,
+                                      game._start,
+                                      game._moves.subList(0, MAX_MOVES),
+                                      null);
+            }
+            int size = 4 + game.encodedSize();
+            if (size > _buffer.remaining()) {
+                flush();
+            }
+            if (size > _buffer.remaining()) {
+                ByteBuffer data = ByteBuffer.allocate(size);
+                game.encode(data);
+                data.flip();
+                writeFully(data);
+            } else {
+                game.encode(_buffer);
+            }
+        }
+
+        /** Write any buffered records to my file. */
+        synchronized void flush() throws IOException {
+            _buffer.flip();
+            writeFully(_buffer);
+            _buffer.clear();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                _channel.close();
+            }
+        }
+
+        /** Write all of DATA to my file. */
+        private void writeFully(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                _channel.write(data);
+            }
+        }
+
+        /** The file written. */
+        private final FileChannel _channel;
+        /** Records not yet written to _channel. */
+        private final ByteBuffer _buffer =
+            ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /** Return true iff the file named FILENAME starts in the manner of
+     *  a file written by Writers.  Throws IOException if it cannot be
+     *  read. */
+    static boolean isRecordFile(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                                                    READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return false;
+                }
+            }
+            header.flip();
+            return header.getInt() == MAGIC;
+        }
+    }
+
+    /** Reads the records in a file written by Writers, in order. */
+    static class Reader implements AutoCloseable {
+
+        /** A Reader for the file named FILENAME. */
+        Reader(String fileName) throws IOException {
+            _channel = FileChannel.open(Paths.get(fileName), READ);
+            _buffer.flip();
+            if (!fill(4) || _buffer.getInt() != MAGIC) {
+                _channel.close();
+                throw new IOException("not a game record file: "
+                                      + fileName);
+            }
+        }
+
+        /** Return the next record, or null if there are no more. */
+        GameRecord next() throws IOException {
+            if (!fill(4)) {
+                if (_buffer.hasRemaining()) {
+                    throw new IOException("truncated game record");
+                }
+                return null;
+            }
+            int size = _buffer.getInt();
+            if (size < 0) {
+                throw new IOException("bad game record");
+            }
+            if (size > _buffer.capacity()) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(size);
+                bigger.put(_buffer).flip();
+                _buffer = bigger;
+            }
+            if (!fill(size)) {
+                throw new IOException("truncated game record");
+            }
+            ByteBuffer data = _buffer.slice();
+            data.limit(size);
+            _buffer.position(_buffer.position() + size);
+            GameRecord result = decode(data);
+            if (data.hasRemaining()) {
+                throw new IOException("bad game record");
+            }
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            _channel.close();
+        }
+
+        /** Read from my file until _buffer holds at least N bytes, if
+         *  possible.  Return true iff it then does. */
+        private boolean fill(int n) throws IOException {
+            if (_buffer.remaining() >= n) {
+                return true;
+            }
+            _buffer.compact();
+            while (_buffer.position() < n) {
+                if (_channel.read(_buffer) < 0) {
+                    break;
+                }
+            }
+            _buffer.flip();
+            return _buffer.remaining() >= n;
+        }
+
+        /** The file read. */
+        private final FileChannel _channel;
+        /** Bytes read from _channel but not yet decoded. */
+        private ByteBuffer _buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /** Identifies a game record file ("QGR1"). */
+    private static final int MAGIC = 0x51475231;
+
+    /** Largest number of moves in a record. */
+    static final int MAX_MOVES = 0xffff;
+
+    /** Number of legs at which a move's leg count takes its own byte. */
+    private static final int LONG_CHAIN = 8;
+
+    /** Number of bits of a move's first byte that give its starting
+     *  square. */
+    private static final int SQUARE_BITS = 5;
+
+    /** Size in bytes of an encoded starting position. */
+    private static final int START_SIZE = 17;
+
+    /** Size in bytes of the buffers of Writers and Readers. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Largest length of a line of moves in toString. */
+    private static final int LINE = 72;
+
+    /** Key of the initial position. */
+    private static final long INITIAL_KEY = new Board().key();
+
+    /** Name of White's player. */
+    private final String _whiteName;
+    /** Name of Black's player. */
+    private final String _blackName;
+    /** The starting position. */
+    private final Board _start;
+    /** The moves made. */
+    private final List<Move> _moves;
+    /** The winner, or null if the game did not finish. */
+    private final PieceColor _winner;
+}
@@ -0,0 +1,112 @@
+package qirkat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of game records.
+ *  @author Chelsea Chen
+ */
+public class GameRecordTest {
+
+    /** Return a board on which a game has been played from START to its
+     *  end (or for at most MAXPLIES plies) by choosing moves at random
+     *  with seed SEED. */
+    private static Board randomGame(Board start, long seed, int maxPlies) {
+        Board b = new Board(start);
+        Random random = new Random(seed);
+        long[] moves = new long[Board.MAX_MOVES];
+        for (int k = 0; k < maxPlies && !b.gameOver(); k += 1) {
+            int n = b.getMoves(moves);
+            b.makeMove(b.decode(moves[random.nextInt(n)]));
+        }
+        return b;
+    }
+
+    /** Assert that GAME records the game played on BOARD between
+     *  WHITENAME and BLACKNAME. */
+    private static void checkRecord(GameRecord game, Board board,
+                                    String whiteName, String blackName) {
+        assertEquals(whiteName, game.name(PieceColor.WHITE));
+        assertEquals(blackName, game.name(PieceColor.BLACK));
+        assertEquals(board.getStack(), game.moves());
+        assertEquals(board.gameOver() ? board.getWinner() : null,
+                     game.winner());
+        Board replay = game.start();
+        for (Move mov : game.moves()) {
+            assertTrue(replay.legalMove(mov));
+            replay.makeMove(mov);
+        }
+        assertEquals(board.key(), replay.key());
+    }
+
+    @Test
+    public void testRecord() {
+        Board b = randomGame(new Board(), 1, 1000);
+        assertTrue(b.gameOver());
+        GameRecord game = new GameRecord(b, "A", "B");
+        checkRecord(game, b, "A", "B");
+        assertEquals(new Board().key(), game.start().key());
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        File file = File.createTempFile("qirkat", ".games");
+        file.delete();
+        Board start = new Board();
+        start.setPieces("w-w-w -w-w- ----- -b-b- b-b-b", PieceColor.BLACK);
+        Board[] boards = new Board[4];
+        for (int i = 0; i < boards.length; i += 1) {
+            boards[i] = randomGame(i < 2 ? new Board() : start, i,
+                                   i == 3 ? 3 : 1000);
+        }
+        try {
+            try (GameRecord.Writer out =
+                 new GameRecord.Writer(file.getPath())) {
+                out.write(new GameRecord(boards[0], "A", "B"));
+                out.write(new GameRecord(boards[1], "C", "\u00e9"));
+            }
+            try (GameRecord.Writer out =
+                 new GameRecord.Writer(file.getPath())) {
+                out.write(new GameRecord(boards[2], "", "D"));
+                out.write(new GameRecord(boards[3], "E", "F"));
+            }
+            try (GameRecord.Reader in =
+                 new GameRecord.Reader(file.getPath())) {
+                checkRecord(in.next(), boards[0], "A", "B");
+                checkRecord(in.next(), boards[1], "C", "\u00e9");
+                checkRecord(in.next(), boards[2], "", "D");
+                GameRecord last = in.next();
+                checkRecord(last, boards[3], "E", "F");
+                assertNull(in.next());
+                assertNull(last.winner());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testText() {
+        Board b = new Board();
+        b.makeMove(Move.parseMove("c2-c3"));
+        b.makeMove(Move.parseMove("c4-c2"));
+        String text = new GameRecord(b, "A", "B").toString();
+        assertTrue(text.startsWith(String.format("[White \"A\"]%n"
+                                                 + "[Black \"B\"]%n"
+                                                 + "[Result \"*\"]%n")));
+        assertTrue(text.endsWith(String.format("1. c2-c3 c4-c2 *%n")));
+
+        Board start = new Board();
+        start.setPieces("w---- ----- ----- ----- ----b", PieceColor.BLACK);
+        b = new Board(start);
+        b.makeMove(Move.parseMove("e5-e4"));
+        text = new GameRecord(b, "A", "B").toString();
+        assertTrue(text.contains("[Position \"black w---- ----- ----- "
+                                 + "----- ----b\"]"));
+        assertTrue(text.endsWith(String.format("1... e5-e4 *%n")));
+    }
+}
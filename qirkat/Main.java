@@ -4,31 +4,101 @@ import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.PipedReader;
 import java.io.PipedWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 /** The main program for Qirkat.
  *  @author P. N. Hilfinger */
 public class Main {
 
     /** Run Qirkat game.  Use display if ARGS[k] is '--display', timing
-     *  if ARGS[k] is "--timing". */
+     *  if ARGS[k] is "--timing", and report search statistics if ARGS[k]
+     *  is "--stats".  If ARGS[k] is "--tablebase", AIs use the endgame
+     *  tablebase in the file named ARGS[k+1], and if it is "--book", the
+     *  opening book in the file named ARGS[k+1].  If ARGS[k] is
+     *  "--record", a record of each game played is appended to the file
+     *  named ARGS[k+1] (see GameRecord).  The argument after "--threads"
+     *  gives the number of threads for each AI search and the argument
+     *  after "--time" the milliseconds per AI move, as for the 'threads'
+     *  and 'time' commands.  If ARGS[k] is
+     *  "--selfplay", instead of reading commands, play a Tournament of
+     *  ARGS[k+1] games between an AI using the default evaluator and one
+     *  using the evaluator named by the argument after "--opponent"
+     *  ("weighted" by default), running as many games at once as the
+     *  argument after "--threads" (default 1), with the number of
+     *  milliseconds per move after "--time".  If ARGS[k] is "--replay",
+     *  instead check the moves in the file named ARGS[k+1] (which may be
+     *  given several times) with a Replay, and print any errors and the
+     *  final position. */
     public static void main(String[] args) {
-        boolean useGUI;
         System.out.println("CS61B Qirkat! Version 2.0");
-        useGUI = false;
-        _timing = false;
-        for (int i = 0; i < args.length; i += 1) {
-            switch (args[i]) {
-            case "--display":
-                useGUI = true;
-                break;
-            case "--timing":
-                _timing = true;
-                break;
-            default:
-                usage();
-                break;
+        Options options = parseArgs(args);
+        boolean useGUI = options._useGUI;
+        String tablebaseFile = options._tablebaseFile,
+            bookFile = options._bookFile, recordFile = options._recordFile;
+        List<String> replayFiles = options._replayFiles;
+
+        if (!replayFiles.isEmpty()) {
+            System.exit(replay(replayFiles));
+        }
+
+        Tablebase tablebase = null;
+        OpeningBook book = null;
+        if (tablebaseFile != null) {
+            try {
+                tablebase = Tablebase.load(tablebaseFile);
+            } catch (IOException excp) {
+                System.err.printf("Could not read tablebase %s.%n",
+                                  tablebaseFile);
+                System.exit(1);
             }
         }
+        if (bookFile != null) {
+            try {
+                book = OpeningBook.load(bookFile);
+            } catch (IOException excp) {
+                System.err.printf("Could not read opening book %s.%n",
+                                  bookFile);
+                System.exit(1);
+            }
+        }
+        GameRecord.Writer recorder = null;
+        if (recordFile != null) {
+            try {
+                recorder = new GameRecord.Writer(recordFile);
+            } catch (IOException excp) {
+                System.err.printf("Could not open game record %s.%n",
+                                  recordFile);
+                System.exit(1);
+            }
+        }
+        if (options._selfPlayGames > 0) {
+            /* Timing and statistics are recorded one search at a time,
+             * which does not work with games played concurrently. */
+            _timing = _stats = false;
+            long timeLimit = options._timeLimit < 0 ? Game.DEFAULT_TIME_LIMIT
+                : options._timeLimit;
+            int threads = options._threads < 0 ? 1
+                : options._threads == 0
+                ? Runtime.getRuntime().availableProcessors()
+                : options._threads;
+            Tournament tournament =
+                new Tournament("weighted", options._opponent, timeLimit,
+                               tablebase, book);
+            tournament.setRecorder(recorder);
+            try {
+                tournament.play(options._selfPlayGames, threads, 0);
+                if (recorder != null) {
+                    recorder.close();
+                }
+            } catch (IOException excp) {
+                System.err.printf("Could not write game record %s.%n",
+                                  recordFile);
+                System.exit(1);
+            }
+            System.out.println(tournament);
+            System.exit(0);
+        }
 
         Game game;
         Board board = new Board();
@@ -57,13 +127,168 @@ public class Main {
                                              true),
                             new TextReporter());
         }
+        options.configure(game);
+        game.setTablebase(tablebase);
+        game.setOpeningBook(book);
+        game.setRecorder(recorder);
         game.process();
     }
 
+    /** Return the settings given by the command-line arguments ARGS (see
+     *  main), giving a usage message and exiting if they are
+     *  malformed.  Sets the timing and statistics flags. */
+    static Options parseArgs(String[] args) {
+        Options options = new Options();
+        _timing = _stats = false;
+        for (int i = 0; i < args.length; i += 1) {
+            switch (args[i]) {
+            case "--display":
+                options._useGUI = true;
+                break;
+            case "--timing":
+                _timing = true;
+                break;
+            case "--stats":
+                _stats = true;
+                break;
+            case "--tablebase":
+                i += 1;
+                options._tablebaseFile = fileOption(args, i);
+                break;
+            case "--book":
+                i += 1;
+                options._bookFile = fileOption(args, i);
+                break;
+            case "--record":
+                i += 1;
+                options._recordFile = fileOption(args, i);
+                break;
+            case "--replay":
+                i += 1;
+                options._replayFiles.add(fileOption(args, i));
+                break;
+            case "--selfplay":
+                i += 1;
+                options._selfPlayGames = numericOption(args, i, 1);
+                break;
+            case "--threads":
+                i += 1;
+                options._threads = numericOption(args, i, 0);
+                break;
+            case "--time":
+                i += 1;
+                options._timeLimit = numericOption(args, i, 0);
+                break;
+            case "--opponent":
+                if (i + 1 == args.length
+                    || Tournament.evaluator(args[i + 1]) == null) {
+                    usage();
+                }
+                i += 1;
+                options._opponent = args[i];
+                break;
+            default:
+                usage();
+                break;
+            }
+        }
+        return options;
+    }
+
+    /** The settings given by the command-line arguments, other than the
+     *  timing and statistics flags. */
+    static class Options {
+        /** Apply the AI search settings to GAME, as the 'threads' and
+         *  'time' commands would. */
+        void configure(Game game) {
+            if (_threads >= 0) {
+                game.doThreads(new String[] { Integer.toString(_threads) });
+            }
+            if (_timeLimit >= 0) {
+                game.doTime(new String[] { Long.toString(_timeLimit) });
+            }
+        }
+
+        /** True iff the game is to use the display. */
+        private boolean _useGUI;
+        /** Files holding the tablebase, the opening book, and the game
+         *  records, or null if not given. */
+        private String _tablebaseFile, _bookFile, _recordFile;
+        /** Files to replay. */
+        private final List<String> _replayFiles = new ArrayList<>();
+        /** Number of self-play games (0 for none). */
+        private int _selfPlayGames;
+        /** Threads per AI search, or self-play games at a time (0 for one
+         *  per processor), or -1 if not given. */
+        private int _threads = -1;
+        /** Milliseconds per AI move, or -1 if not given. */
+        private long _timeLimit = -1;
+        /** Name of the self-play opponent's Evaluator. */
+        private String _opponent = "weighted";
+    }
+
+    /** Return the option ARGS[K], a file name, giving a usage message and
+     *  exiting if there is none. */
+    private static String fileOption(String[] args, int k) {
+        if (k >= args.length) {
+            usage();
+        }
+        return args[k];
+    }
+
+    /** Replay each of the files named in FILENAMES, printing any errors
+     *  on the standard error, and, for files of commands, the final
+     *  position.  Return 0 if there were no errors, and 1 otherwise. */
+    private static int replay(List<String> fileNames) {
+        int status = 0;
+        for (String fileName : fileNames) {
+            Replay replay = new Replay(fileName);
+            try {
+                replay.run();
+            } catch (IOException excp) {
+                System.err.printf("Could not read %s.%n", fileName);
+                status = 1;
+                continue;
+            }
+            for (String error : replay.errors()) {
+                System.err.println(error);
+                status = 1;
+            }
+            if (!replay.records()) {
+                Game.dump(replay.board());
+            }
+            System.out.println(replay);
+        }
+        return status;
+    }
+
+    /** Return the value of the option ARGS[K], which must be a decimal
+     *  number of at least MIN, giving a usage message and exiting if it
+     *  is not. */
+    private static int numericOption(String[] args, int k, int min) {
+        if (k < args.length && args[k].matches("\\d{1,9}")) {
+            int value = Integer.parseInt(args[k]);
+            if (value >= min) {
+                return value;
+            }
+        }
+        usage();
+        return min;
+    }
+
     /** Give usage message and exit. */
     static void usage() {
         System.err.println("Usage: java qirkat.Main [--display] [--timing]"
-                           + " [--strict]");
+                           + " [--stats] [--tablebase FILE] [--book FILE]"
+                           + " [--record FILE] [--threads T]"
+                           + " [--time MSEC] [--strict]");
+        System.err.println("       java qirkat.Main --selfplay N"
+                           + " [--threads T] [--time MSEC]"
+                           + " [--opponent weighted|material]"
+                           + " [--tablebase FILE] [--book FILE]"
+                           + " [--record FILE]");
+        System.err.println("       java qirkat.Main --replay FILE"
+                           + " [--replay FILE]...");
         System.exit(1);
     }
 
@@ -88,6 +313,35 @@ public class Main {
         }
     }
 
+    /** Report, if we are timing, that an AI search using THREADS
+     *  threads completed an iteration of depth DEPTH after TIMETODEPTH
+     *  nanoseconds.  With a fixed time per move, comparing the depths
+     *  reached with one thread and with several shows the speedup from
+     *  the additional threads. */
+    static void reportSearch(int depth, long timeToDepth, int threads) {
+        if (_timing) {
+            System.err.printf("[depth %d in %d msec, %d thread%s]%n",
+                              depth, timeToDepth / 1_000_000, threads,
+                              threads == 1 ? "" : "s");
+            _totalDepth += depth;
+            _numSearches += 1;
+        }
+    }
+
+    /* STATISTICS */
+
+    /** Return true iff AIs should collect and report search
+     *  statistics. */
+    static boolean collectingStats() {
+        return _stats;
+    }
+
+    /** Add the statistics STATS of an AI search to the totals reported
+     *  by reportTotalTimes. */
+    static void recordStats(SearchStats stats) {
+        _totalStats.add(stats);
+    }
+
     /** Report total time statistics, if timing. */
     static void reportTotalTimes() {
         if (_timing && _numTimedOps > 0) {
@@ -97,6 +351,15 @@ public class Main {
                               _numTimedOps, _totalTime / _numTimedOps,
                               _maxTime);
         }
+        if (_timing && _numSearches > 0) {
+            System.err.printf("[Avg. depth: %.2f over %d searches]%n",
+                              (double) _totalDepth / _numSearches,
+                              _numSearches);
+        }
+        if (_stats && _totalStats.searches() > 0) {
+            System.err.printf("[Total over %d searches: %s]%n",
+                              _totalStats.searches(), _totalStats);
+        }
     }
 
     /** True iff AIs should time. */
@@ -114,6 +377,18 @@ public class Main {
     /** Maximum operation time. */
     private static long _maxTime;
 
+    /** Sum of the depths reached by timed searches. */
+    private static long _totalDepth;
+
+    /** Number of searches reported. */
+    private static int _numSearches;
+
+    /** True iff AIs should report search statistics. */
+    private static boolean _stats;
+
+    /** Totals of the statistics of reported searches. */
+    private static SearchStats _totalStats = new SearchStats();
+
     /** Size of the buffer for reading commands from a GUI (bytes). */
     private static final int BUFFER_LEN = 128;
 
@@ -0,0 +1,47 @@
+package qirkat;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of command-line options.
+ *  @author Chelsea Chen
+ */
+public class MainTest {
+
+    /** Return a new Game reading no commands. */
+    private static Game newGame() {
+        return new Game(new Board(),
+                        new ReaderSource(new StringReader(""), false),
+                        new TextReporter());
+    }
+
+    @Test
+    public void testSearchOptions() {
+        Game game = newGame();
+        Main.parseArgs(new String[] { "--threads", "3", "--time", "250" })
+            .configure(game);
+        assertEquals(3, game.threads());
+        assertEquals(250, game.timeLimit());
+    }
+
+    @Test
+    public void testHugeTimeLimit() {
+        Game game = newGame();
+        game.doTime(new String[] { "10000000000000" });
+        assertEquals(Game.MAX_TIME_LIMIT, game.timeLimit());
+        game.doTime(new String[] { "100000000000000000000" });
+        assertEquals(Game.MAX_TIME_LIMIT, game.timeLimit());
+        game.doTime(new String[] { Long.toString(Game.MAX_TIME_LIMIT) });
+        assertEquals(Game.MAX_TIME_LIMIT, game.timeLimit());
+    }
+
+    @Test
+    public void testDefaultSearchOptions() {
+        Game game = newGame(), unconfigured = newGame();
+        Main.parseArgs(new String[] {}).configure(game);
+        assertEquals(unconfigured.threads(), game.threads());
+        assertEquals(unconfigured.timeLimit(), game.timeLimit());
+    }
+}
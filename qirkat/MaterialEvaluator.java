@@ -0,0 +1,19 @@
+package qirkat;
+
+/** An Evaluator that counts only material: the difference between the
+ *  numbers of pieces of the two sides.
+ *  @author Chelsea Chen
+ */
+class MaterialEvaluator implements Evaluator {
+
+    @Override
+    public int evaluate(Board board, PieceColor who) {
+        return board.count(who) - board.count(who.opposite());
+    }
+
+    @Override
+    public int pieceValue() {
+        return 1;
+    }
+
+}
@@ -2,10 +2,8 @@ package qirkat;
 
 import static java.lang.Math.abs;
 import java.util.Formatter;
-import java.util.HashMap;
-import java.util.function.Function;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /** Represents a Qirkat move. There is one Move object created for
  *  each distinct Move.  A "vestigial" move represents a single board
@@ -27,9 +25,9 @@ class Move {
         STEP_R = 5,
         INDEX_ORIGIN = -('a' * STEP_C + '1' * STEP_R);
 
-    /** Pattern for valid move input. */
-    private static final Pattern MOVE_PATTERN =
-        Pattern.compile("(?:.*-)?([a-e])([1-5])-([a-e])([1-5])$");
+    /** Number of characters that each leg of a move adds to its
+     *  denotation ("-c3"). */
+    private static final int LEG_LENGTH = 3;
 
     /* Moves get generated profligately during the calculations of an AI,
      * so it's a good idea to make that operation efficient.  Instead of
@@ -39,53 +37,41 @@ class Move {
      * one. Moves themselves are immutable, and for any possible move,
      * there is exactly one object of type Move. */
 
-    /* To avoid creating Move objects that are not needed, we maintain a
-     * a static variable, _staged containing a Move object.  The move
-     * factory methods then sets the fields of this object before looking to
-     * to see if there is already a Move object with the same parameters.
-     * If there is, the move methods will simply return it, thus allowing
-     * _staged to be reused on the next call without having to create a
-     * new Move object.  Otherwise, we use the _staged object itself as the
-     * new Move, and set the variable to null so that we create a new
-     * Move on the next call to move. There is a drawback: since there
-     * is at most one _staged object at any time, at most one call to move
-     * may execute simultaneously.  Otherwise, two the methods may attempt
-     * to use the same Move object for two different Moves, which clearly
-     * will not work.  Therefore, we indicate in the comments that a number
-     * of the operations are not "thread safe". Fortunately, you'll not run
-     * into this problem as long as you don't do anything fancy (such as
-     * trying to make your AI a parallel program).
-     */
-
-    /** The move constructor, made private to prevent its use except in
-     *  this class. */
-    private Move() {
+    /* All single moves and jumps (every pair of starting and ending
+     * squares, valid or not) are created when the class is loaded and
+     * kept in SINGLES, indexed by starting and ending square.  A
+     * multi-jump is its first leg followed by a shorter Move (its
+     * jumpTail()), and is found in a table of predecessors kept in that
+     * shorter Move, indexed by the starting square of the first leg, so
+     * that the Moves form a tree rooted at the single jumps.  Entries in
+     * these tables are created on first use with compare-and-set
+     * operations, so that the factory methods do no hashing, take no
+     * locks, and are safe to call from several threads at once. */
+
+    /** The Move from square FROM to square TO, followed by NEXTJUMP.
+     *  Used only to create the unique instance of each Move. */
+    private Move(int from, int to, Move nextJump) {
+        _fromIndex = (byte) from;
+        _toIndex = (byte) to;
+        _isJump = abs(col(from) - col(to)) > 1
+            || abs(row(from) - row(to)) > 1;
+        _nextJump = nextJump;
+        _jumpedIndex = (byte) (_isJump ? index(jumpedCol(), jumpedRow())
+                               : to);
     }
 
     /** A factory method that returns a Move from COL0 ROW0 to COL1 ROW1,
      *  followed by NEXTJUMP, if this move is a jump. Assumes the column
      *  and row designations are valid and that NEXTJUMP is null for a
-     *  non-capturing move.  Not thread-safe. */
+     *  non-capturing move. */
     static Move move(char col0, char row0, char col1, char row1,
                      Move nextJump) {
-        if (_staged == null) {
-            _staged = new Move();
-        }
-        _staged.set(col0, row0, col1, row1, nextJump);
-        if (_staged.isJump() && nextJump != null && !nextJump.isJump()) {
-            throw new IllegalArgumentException("bad jump");
-        } else if (!_staged.isJump() && nextJump != null) {
-            throw new IllegalArgumentException("bad jump");
-        }
-        Move result = _internedMoves.computeIfAbsent(_staged, IDENTITY);
-        if (result == _staged) {
-            _staged = null;
-        }
-        return result;
+        assert col0 >= 'a' && row0 >= '1' && col1 >= 'a' && row1 >= '1'
+            && col0 <= 'e' && row0 <= '5' && col1 <= 'e' &&  row1 <= '5';
+        return move(index(col0, row0), index(col1, row1), nextJump);
     }
 
-    /** Return a single move or jump from (COL0, ROW0) to (COL1, ROW1).
-     *  Not thread-safe. */
+    /** Return a single move or jump from (COL0, ROW0) to (COL1, ROW1). */
     static Move move(char col0, char row0, char col1, char row1) {
         return move(col0, row0, col1, row1, null);
     }
@@ -96,12 +82,26 @@ class Move {
         return move(col0, row0, col0, row0);
     }
 
+    /** Return the Move from the square with linearized index FROM to
+     *  that with index TO, followed by NEXTJUMP, subject to the same
+     *  restrictions as move(col0, row0, col1, row1, nextJump). */
+    static Move move(int from, int to, Move nextJump) {
+        Move single = SINGLES[from * (MAX_INDEX + 1) + to];
+        if (nextJump == null) {
+            return single;
+        }
+        if (!single.isJump() || !nextJump.isJump()) {
+            throw new IllegalArgumentException("bad jump");
+        }
+        assert to == nextJump._fromIndex;
+        return nextJump.prefix(from);
+    }
+
     /** Return the concatenation MOVE0 followed by MOVE1.  Either may be
      *  null, in which case the result is the other.  A vestigial move
      *  is equivalent to a position and extends a move on either end by
      *  one square. */
     static Move move(Move move0, Move move1) {
-
         if (move0 == null) {
             return move1;
         }
@@ -109,18 +109,20 @@ class Move {
             return move0;
         }
         if (move0.isVestigial()) {
-            return move(move0.col0(), move0.row0(),
-                    move1.col0(), move1.row0(), move1);
+            return move(move0._fromIndex, move1._fromIndex, move1);
         }
-        if (move0.jumpTail() == null) {
-            return move(move0.col0(), move0.row0(),
-                    move0.col1(), move0.row1(), move1);
-        } else {
-            return move(move0.col0(), move0.row0(),
-                    move0.col1(), move0.row1(),
-                    move(move0._nextJump, move1));
+        int[] squares = new int[MAX_INDEX + 1];
+        int n;
+        n = 0;
+        for (Move m = move0; m != null; m = m._nextJump) {
+            squares[n] = m._fromIndex;
+            n += 1;
         }
-
+        Move result = move(squares[n - 1], move0.lastIndex(), move1);
+        for (int i = n - 1; i > 0; i -= 1) {
+            result = move(squares[i - 1], squares[i], result);
+        }
+        return result;
     }
 
     /** Return true iff (C, R) is a valid square designation. */
@@ -158,14 +160,14 @@ class Move {
     /** Return true iff this is a vestigial Move consisting only of a single
      *  position. */
     boolean isVestigial() {
-        return _col0 == _col1 && _row0 == _row1 && _nextJump == null;
+        return _fromIndex == _toIndex && _nextJump == null;
     }
 
     /** Return true iff this is a horizontal, non-capturing move to
      *  the left. */
     boolean isLeftMove() {
         if (!isJump()) {
-            return _row0 == _row1 && _col0 > _col1;
+            return row0() == row1() && col0() > col1();
         } else {
             return false;
         }
@@ -176,7 +178,7 @@ class Move {
      *  to the right. */
     boolean isRightMove() {
         if (!isJump()) {
-            return _row0 == _row1 && _col0 < _col1;
+            return row0() == row1() && col0() < col1();
         } else {
             return false;
         }
@@ -184,54 +186,54 @@ class Move {
 
     /** Returns the source column. */
     char col0() {
-        return _col0;
+        return col(_fromIndex);
     }
 
     /** Returns the source row. */
     char row0() {
-        return _row0;
+        return row(_fromIndex);
     }
 
     /** Returns the destination column. */
     char col1() {
-        return _col1;
+        return col(_toIndex);
     }
 
     /** Returns the destination row. */
     char row1() {
-        return _row1;
+        return row(_toIndex);
     }
 
     /** For a jump, returns the row of the jumped-over square for the
      *  first leg of the jump.  For a non-capturing move, same as row1(). */
     char jumpedRow() {
+        char row0 = row0(), row1 = row1();
         if (isJump()) {
-            if (_row0 == _row1) {
-                return _row0;
+            if (row0 == row1) {
+                return row0;
             }
-            if (_row1 > _row0) {
-                return (char) (_row1 - 1);
+            if (row1 > row0) {
+                return (char) (row1 - 1);
             }
-            return (char) (_row1 + 1);
+            return (char) (row1 + 1);
         }
-        return _row1;
+        return row1;
     }
 
     /** For a jump, returns the column of the jumped-over square for the
      *  first leg of the jump.  For a non-capturing move, same as col1(). */
     char jumpedCol() {
+        char col0 = col0(), col1 = col1();
         if (isJump()) {
-            if (_col0 == _col1) {
-                return _col0;
-            }
-            if (_col0 < _col1) {
-                return (char) (_col1 - 1);
+            if (col0 == col1) {
+                return col0;
             }
-            if (_col0 > _col1) {
-                return (char) (_col1 + 1);
+            if (col0 < col1) {
+                return (char) (col1 - 1);
             }
+            return (char) (col1 + 1);
         }
-        return _row1;
+        return col1;
     }
 
     /** Return the linearized index of my source square. */
@@ -246,7 +248,7 @@ class Move {
 
     /** Return the linearized index of (jumpedCol(), jumpedRow()). */
     int jumpedIndex() {
-        return index(jumpedCol(), jumpedRow());
+        return _jumpedIndex;
     }
 
     /** Return the second and subsequent jumps comprising this jump, or null
@@ -263,39 +265,40 @@ class Move {
     @Override
     public boolean equals(Object obj) {
         /* NOTE: Depends on there being no more than one Move object for
-         * each distinct move, so that pointer equality of _nextJump
-         * is valid. */
-        Move m = (Move) obj;
-        return _fromIndex == m._fromIndex && _nextJump == m._nextJump
-            && _toIndex == m._toIndex;
+         * each distinct move. */
+        return this == obj;
     }
 
     /** Return the non-vestigial Move denoted by STR. */
     static Move parseMove(String str) {
-        Matcher mat = MOVE_PATTERN.matcher(str);
-        int end;
-
-        Move result;
-        result = null;
-        end = str.length();
-
-        while (end > 2) {
-            mat.region(0, end);
-            if (!mat.matches()) {
-                throw new IllegalArgumentException("bad move denotation");
-            }
-
-            result = move(mat.group(1).charAt(0), mat.group(2).charAt(0),
-                          mat.group(3).charAt(0), mat.group(4).charAt(0),
-                          result);
-            end = mat.end(2);
-        }
-        if (result == null) {
+        if (!validDenotation(str)) {
             throw new IllegalArgumentException("bad move denotation");
         }
+        Move result = null;
+        for (int k = str.length() - LEG_LENGTH; k > 0; k -= LEG_LENGTH) {
+            result = move(index(str.charAt(k - 2), str.charAt(k - 1)),
+                          index(str.charAt(k + 1), str.charAt(k + 2)),
+                          result);
+        }
         return result;
     }
 
+    /** Return true iff STR has the form of a move: two or more squares
+     *  separated by '-', as in "a3-a5-c3". */
+    static boolean validDenotation(String str) {
+        int n = str.length();
+        if (n < 2 + LEG_LENGTH || (n - 2) % LEG_LENGTH != 0) {
+            return false;
+        }
+        for (int k = 0; k < n; k += LEG_LENGTH) {
+            if (!validSquare(str.charAt(k), str.charAt(k + 1))
+                || k + 2 < n && str.charAt(k + 2) != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public String toString() {
         Formatter out = new Formatter();
@@ -313,51 +316,73 @@ class Move {
         }
     }
 
-    /** Set me to COL0 ROW0 - COL1 ROW1 - NEXTJUMP. */
-    private void set(char col0, char row0, char col1, char row1,
-                     Move nextJump) {
-        assert col0 >= 'a' && row0 >= '1' && col1 >= 'a' && row1 >= '1'
-            && col0 <= 'e' && row0 <= '5' && col1 <= 'e' &&  row1 <= '5';
-        _col0 = col0;
-        _row0 = row0;
-        _col1 = col1;
-        _row1 = row1;
-        _fromIndex = (byte) index(col0, row0);
-        _toIndex = (byte) index(col1, row1);
-        _isJump = abs(col0 - col1) > 1 || abs(row0 - row1) > 1;
-        _nextJump = nextJump;
-        assert (_isJump
-                && (nextJump == null
-                    || (nextJump.isJump()
-                        && col1 == nextJump.col0()
-                        && row1 == nextJump.row0())))
-            || (!_isJump && nextJump == null);
+    /** Return the jump from square FROM to my starting square, followed
+     *  by me.  Assumes I am a jump. */
+    private Move prefix(int from) {
+        AtomicReferenceArray<Move> predecessors = _predecessors;
+        if (predecessors == null) {
+            PREDECESSORS.compareAndSet(this, null,
+                new AtomicReferenceArray<Move>(MAX_INDEX + 1));
+            predecessors = _predecessors;
+        }
+        Move result = predecessors.get(from);
+        if (result == null) {
+            predecessors.compareAndSet(from, null,
+                                       new Move(from, _fromIndex, this));
+            result = predecessors.get(from);
+        }
+        return result;
+    }
+
+    /** Return the linearized index of my final destination square. */
+    private int lastIndex() {
+        Move m;
+        for (m = this; m._nextJump != null; m = m._nextJump) {
+            continue;
+        }
+        return m._toIndex;
     }
 
     /** Linearized indices. */
-    private byte _fromIndex, _toIndex;
+    private final byte _fromIndex, _toIndex;
 
-    /** True iff move is a jump. */
-    private boolean _isJump;
+    /** Linearized index of the square jumped over by my first leg, or
+     *  _toIndex if I am not a jump. */
+    private final byte _jumpedIndex;
 
-    /** From and to squares. */
-    private char _col0, _row0, _col1, _row1;
+    /** True iff move is a jump. */
+    private final boolean _isJump;
 
     /** For a jump, the Move representing the jumps following the
      *  initial jump. */
-    private Move _nextJump;
+    private final Move _nextJump;
 
     /* Used for the Move factory. */
 
-    /** Holds the next Move object to be added to _internedMoves.
-     *  The factory method move tentatively fills it in, and then returns
-     *  it if it is unique (resetting _staged to null). */
-    private static Move _staged;
+    /** Every single move or jump, indexed by
+     *  fromIndex() * (MAX_INDEX + 1) + toIndex(). */
+    private static final Move[] SINGLES =
+        new Move[(MAX_INDEX + 1) * (MAX_INDEX + 1)];
 
-    /** The set of all distinct moves generated so far. */
-    private static HashMap<Move, Move> _internedMoves = new HashMap<>();
+    static {
+        for (int from = 0; from <= MAX_INDEX; from += 1) {
+            for (int to = 0; to <= MAX_INDEX; to += 1) {
+                SINGLES[from * (MAX_INDEX + 1) + to] =
+                    new Move(from, to, null);
+            }
+        }
+    }
 
-    /** The identity function on Moves. */
-    static final Function<Move, Move> IDENTITY = k -> k;
+    /** For a jump, the multi-jumps whose tail is this Move, indexed by
+     *  their starting squares.  Created on first use. */
+    private volatile AtomicReferenceArray<Move> _predecessors;
+
+    /** Atomically updates _predecessors. */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Move,
+        AtomicReferenceArray> PREDECESSORS =
+        AtomicReferenceFieldUpdater.newUpdater(Move.class,
+                                               AtomicReferenceArray.class,
+                                               "_predecessors");
 
 }
@@ -42,6 +42,23 @@ public class MoveTest {
         assertEquals("a3-a5-c3-e1", parseMove("a3-a5-c3-e1").toString());
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseBadString() {
+        parseMove("a3-a5-");
+    }
+
+    @Test
+    public void testUnique() {
+        Move m = move('a', '3', 'a', '5', move('a', '5', 'c', '3'));
+        assertSame(m, parseMove("a3-a5-c3"));
+        assertSame(m, move(move('a', '3', 'a', '5'),
+                           move('a', '5', 'c', '3')));
+        assertSame(parseMove("a3-a5-c3-e1"),
+                   move(m, move('c', '3', 'e', '1')));
+        assertSame(m, move(move('a', '3'), m.jumpTail()));
+        assertEquals(index('a', '4'), m.jumpedIndex());
+    }
+
     @Test
     public void testToString() {
         System.out.println(move('a', '3', 'a', '5',
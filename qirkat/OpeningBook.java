@@ -0,0 +1,251 @@
+package qirkat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+
+import static qirkat.PieceColor.*;
+
+/** An opening book: for positions near the start of the game, the moves
+ *  judged best by deep searches, each with a weight.  An AI consults
+ *  the book before searching.  When the book has several moves for a
+ *  position, it picks one at random in proportion to the weights, using
+ *  Game.nextRandom so that the 'seed' command makes games
+ *  reproducible.
+ *
+ *  Positions are identified by Board.key() and moves by their
+ *  encodings (see Board.encode).  The file is a header of two ints,
+ *  MAGIC and the number of entries, followed by the entries in order of
+ *  key.  Each entry is a key (long), a move (long), and a weight (int).
+ *  @author Chelsea Chen
+ */
+class OpeningBook {
+
+    /** Build a book covering the first ARGS[0] plies, scoring moves by
+     *  searches of depth ARGS[1], and write it to the file named
+     *  ARGS[2]. */
+    public static void main(String... args) {
+        if (args.length != 3 || !args[0].matches("\\d+")
+            || !args[1].matches("\\d+")) {
+            System.err.println("Usage: java qirkat.OpeningBook PLIES DEPTH"
+                               + " FILE");
+            System.exit(1);
+        }
+        try {
+            build(Integer.parseInt(args[0]), Integer.parseInt(args[1]))
+                .write(args[2]);
+        } catch (IOException excp) {
+            System.err.printf("Could not write %s.%n", args[2]);
+            System.exit(1);
+        }
+    }
+
+    /** Return a book for the positions reachable from the initial
+     *  position in fewer than PLIES plies by book moves.  Each move from
+     *  such a position is scored by a search to depth DEPTH (counting
+     *  the move).  Moves within MARGIN of the best go in the book, with
+     *  weights that fall off linearly with their distance from the
+     *  best. */
+    static OpeningBook build(int plies, int depth) {
+        Game game = new Game(new Board(),
+                             new ReaderSource(new StringReader(""), false),
+                             new TextReporter());
+        AI white = new AI(game, WHITE), black = new AI(game, BLACK);
+        ArrayList<Entry> entries = new ArrayList<>();
+        HashSet<Long> visited = new HashSet<>();
+        ArrayDeque<Board> queue = new ArrayDeque<>();
+        long[] moves = new long[Board.MAX_MOVES];
+        int[] values = new int[Board.MAX_MOVES];
+        queue.add(new Board());
+        while (!queue.isEmpty()) {
+            Board board = queue.remove();
+            if (board.gameOver() || !visited.add(board.key())) {
+                continue;
+            }
+            AI ai = board.whoseMove() == WHITE ? white : black;
+            int n = board.getMoves(moves);
+            long best = Long.MIN_VALUE;
+            for (int i = 0; i < n; i += 1) {
+                board.makeMove(moves[i]);
+                values[i] = ai.searchValue(board, Math.max(depth - 1, 0));
+                board.undo();
+                best = Math.max(best, values[i]);
+            }
+            for (int i = 0; i < n; i += 1) {
+                long loss = best - values[i];
+                if (loss > MARGIN) {
+                    continue;
+                }
+                if (n > 1) {
+                    entries.add(new Entry(board.key(), moves[i],
+                                          (int) (MARGIN + 1 - loss)));
+                }
+                if (board.moveCount() + 1 < plies) {
+                    Board next = new Board(board);
+                    next.makeMove(board.decode(moves[i]));
+                    queue.add(next);
+                }
+            }
+        }
+        return new OpeningBook(entries);
+    }
+
+    /** Return the book in the file named FILENAME, as written by
+     *  write. */
+    static OpeningBook load(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            FileChannel channel = file.getChannel();
+            ByteBuffer data =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+                throw new IOException("not an opening book: " + fileName);
+            }
+            int size = data.getInt();
+            if (size < 0 || data.remaining() != (long) size * ENTRY_SIZE) {
+                throw new IOException("bad opening book: " + fileName);
+            }
+            ArrayList<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < size; i += 1) {
+                entries.add(new Entry(data.getLong(), data.getLong(),
+                                      data.getInt()));
+            }
+            return new OpeningBook(entries);
+        }
+    }
+
+    /** Write me to the file named FILENAME in the form read by load. */
+    void write(String fileName) throws IOException {
+        ByteBuffer data =
+            ByteBuffer.allocate(HEADER_SIZE + size() * ENTRY_SIZE);
+        data.putInt(MAGIC).putInt(size());
+        for (int i = 0; i < size(); i += 1) {
+            data.putLong(_keys[i]).putLong(_moves[i]).putInt(_weights[i]);
+        }
+        data.flip();
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+            FileChannel channel = file.getChannel();
+            channel.truncate(0);
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+
+    /** A book containing ENTRIES, in any order. */
+    private OpeningBook(ArrayList<Entry> entries) {
+        entries.sort(Comparator.comparingLong((Entry e) -> e._key)
+                     .thenComparingLong(e -> e._move));
+        _keys = new long[entries.size()];
+        _moves = new long[entries.size()];
+        _weights = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i += 1) {
+            _keys[i] = entries.get(i)._key;
+            _moves[i] = entries.get(i)._move;
+            _weights[i] = entries.get(i)._weight;
+        }
+    }
+
+    /** Return the number of moves in the book. */
+    int size() {
+        return _keys.length;
+    }
+
+    /** Return a book move for the position on BOARD, chosen at random
+     *  in proportion to the moves' weights using GAME's random number
+     *  generator, or null if the book has no legal move for it. */
+    Move choose(Board board, Game game) {
+        long key = board.key();
+        int lo = first(key);
+        long[] legal = new long[Board.MAX_MOVES];
+        int numLegal = board.getMoves(legal);
+        long[] candidates = new long[numLegal];
+        int[] weights = new int[numLegal];
+        int n = 0, total = 0;
+        for (int i = lo; i < size() && _keys[i] == key; i += 1) {
+            for (int j = 0; j < numLegal; j += 1) {
+                if (legal[j] == _moves[i]) {
+                    candidates[n] = _moves[i];
+                    weights[n] = _weights[i];
+                    total += _weights[i];
+                    n += 1;
+                    break;
+                }
+            }
+        }
+        if (n == 0) {
+            return null;
+        }
+        int r = game.nextRandom(total);
+        int i;
+        for (i = 0; r >= weights[i]; i += 1) {
+            r -= weights[i];
+        }
+        return board.decode(candidates[i]);
+    }
+
+    /** Return the weight of MOV in the position on BOARD, or 0 if the
+     *  book does not have it. */
+    int weight(Board board, Move mov) {
+        long key = board.key(), encoded = Board.encode(mov);
+        for (int i = first(key); i < size() && _keys[i] == key; i += 1) {
+            if (_moves[i] == encoded) {
+                return _weights[i];
+            }
+        }
+        return 0;
+    }
+
+    /** Return the index of the first entry whose key is at least KEY
+     *  (size() if there is none). */
+    private int first(long key) {
+        int lo = 0, hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (_keys[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** A move in a book under construction. */
+    private static class Entry {
+        /** The move encoded as MOVE, with weight WEIGHT, from the
+         *  position whose key is KEY. */
+        Entry(long key, long move, int weight) {
+            _key = key;
+            _move = move;
+            _weight = weight;
+        }
+
+        /** Position key, move encoding, and weight. */
+        private final long _key, _move;
+        /** See _key. */
+        private final int _weight;
+    }
+
+    /** Largest amount by which a book move's score may fall short of the
+     *  best move's. */
+    private static final int MARGIN = 20;
+
+    /** Identifies an opening book file ("QOB1"). */
+    private static final int MAGIC = 0x514f4231;
+
+    /** Sizes in bytes of the file header and of one entry. */
+    private static final int HEADER_SIZE = 8, ENTRY_SIZE = 20;
+
+    /** Positions keys of the moves, in increasing order. */
+    private final long[] _keys;
+    /** The encoded moves for the positions in _keys. */
+    private final long[] _moves;
+    /** The weights of the moves in _moves. */
+    private final int[] _weights;
+}
@@ -0,0 +1,95 @@
+package qirkat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of opening books.
+ *  @author Chelsea Chen
+ */
+public class OpeningBookTest {
+
+    /** A small book shared by the tests. */
+    private static final OpeningBook BOOK = OpeningBook.build(4, 4);
+
+    /** Return a new Game whose random numbers are seeded with SEED. */
+    private static Game game(String seed) {
+        Game game = new Game(new Board(),
+                             new ReaderSource(new StringReader(""), false),
+                             new TextReporter());
+        game.doSeed(new String[] { seed });
+        return game;
+    }
+
+    /** Play book moves chosen with GAME's random numbers on B, together
+     *  with any forced moves, until the book runs out.  Return the
+     *  moves played. */
+    private static String play(Board b, Game game) {
+        String moves = "";
+        long[] legal = new long[Board.MAX_MOVES];
+        while (true) {
+            Move mov = BOOK.choose(b, game);
+            if (mov == null && !b.gameOver() && b.getMoves(legal) == 1) {
+                mov = b.decode(legal[0]);
+            }
+            if (mov == null) {
+                return moves;
+            }
+            assertTrue(b.legalMove(mov));
+            b.makeMove(mov);
+            moves += " " + mov;
+        }
+    }
+
+    @Test
+    public void testChoose() {
+        Board b = new Board();
+        assertTrue(BOOK.size() > 0);
+        play(b, game("1"));
+        assertTrue(b.getStack().size() >= 4);
+        b.setPieces("w---- ----- ----- ----- ----b", PieceColor.WHITE);
+        assertNull(BOOK.choose(b, game("1")));
+    }
+
+    @Test
+    public void testShallowBuild() {
+        Board b = new Board();
+        long[] moves = new long[Board.MAX_MOVES];
+        int n = b.getMoves(moves);
+        for (int plies = 1; plies <= 2; plies += 1) {
+            OpeningBook book = OpeningBook.build(plies, 1);
+            int first = book.weight(b, b.decode(moves[0]));
+            boolean varied = false;
+            for (int i = 1; i < n; i += 1) {
+                varied |= book.weight(b, b.decode(moves[i])) != first;
+            }
+            assertTrue("all moves weighted equally", varied);
+        }
+    }
+
+    @Test
+    public void testReproducible() {
+        for (int seed = 0; seed < 10; seed += 1) {
+            String s = Integer.toString(seed);
+            assertEquals(play(new Board(), game(s)),
+                         play(new Board(), game(s)));
+        }
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        File file = File.createTempFile("qirkat", ".book");
+        try {
+            BOOK.write(file.getPath());
+            OpeningBook loaded = OpeningBook.load(file.getPath());
+            assertEquals(BOOK.size(), loaded.size());
+            assertSame(BOOK.choose(new Board(), game("3")),
+                       loaded.choose(new Board(), game("3")));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package qirkat;
+
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/** Move-path enumeration ("perft") for validating and timing the move
+ *  generator.  The perft count of a position to depth D is the number of
+ *  distinct sequences of D legal moves starting from it (1 for D = 0).
+ *  Moves are generated with Board.getMoves(long[]), so that two jumps
+ *  that start and end on the same squares and capture the same pieces
+ *  count once.
+ *  @author Chelsea Chen
+ */
+class Perft {
+
+    /** Minimum remaining depth at which a parallel perft splits the work
+     *  for a position among tasks, one per move. */
+    static final int SPLIT_DEPTH = 4;
+
+    /** Return the perft count of BOARD to depth DEPTH >= 0, using up to
+     *  THREADS threads.  BOARD is unchanged. */
+    static long perft(Board board, int depth, int threads) {
+        if (threads <= 1) {
+            return new Perft(board).count(depth);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new Task(new Board(board), depth));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Return the perft counts to depth DEPTH > 0 of the positions
+     *  following each legal move from BOARD, keyed by the move's
+     *  text, using up to THREADS threads.  BOARD is unchanged. */
+    static TreeMap<String, Long> divide(Board board, int depth,
+                                        int threads) {
+        long[] moves = new long[Board.MAX_MOVES];
+        int n = board.getMoves(moves);
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < n; i += 1) {
+            Board next = new Board(board);
+            next.makeMove(moves[i]);
+            tasks.add(new Task(next, depth - 1));
+        }
+        if (threads <= 1) {
+            for (Task task : tasks) {
+                task.sequential();
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new Task(tasks));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        TreeMap<String, Long> result = new TreeMap<>();
+        for (int i = 0; i < n; i += 1) {
+            result.put(board.decode(moves[i]).toString(),
+                       tasks.get(i).result());
+        }
+        return result;
+    }
+
+    /** A Perft that counts from a copy of BOARD. */
+    private Perft(Board board) {
+        _board = new Board(board);
+    }
+
+    /** Return the perft count of _board to depth DEPTH. */
+    private long count(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        while (_moves.size() < depth) {
+            _moves.add(new long[Board.MAX_MOVES]);
+        }
+        long[] moves = _moves.get(depth - 1);
+        int n = _board.getMoves(moves);
+        if (depth == 1) {
+            return n;
+        }
+        long total = 0;
+        for (int i = 0; i < n; i += 1) {
+            _board.makeMove(moves[i]);
+            total += count(depth - 1);
+            _board.undo();
+        }
+        return total;
+    }
+
+    /** A fork-join task computing a perft count, splitting into one
+     *  subtask per move at depths of at least SPLIT_DEPTH. */
+    private static class Task extends RecursiveTask<Long> {
+
+        /** A task counting to depth DEPTH from BOARD, which it may
+         *  modify. */
+        Task(Board board, int depth) {
+            _board = board;
+            _depth = depth;
+            _subtasks = null;
+        }
+
+        /** A task that runs SUBTASKS in parallel and sums their
+         *  results. */
+        Task(ArrayList<Task> subtasks) {
+            _board = null;
+            _depth = -1;
+            _subtasks = subtasks;
+        }
+
+        @Override
+        protected Long compute() {
+            if (_subtasks == null && _depth < SPLIT_DEPTH) {
+                return new Perft(_board).count(_depth);
+            }
+            ArrayList<Task> subtasks = _subtasks;
+            if (subtasks == null) {
+                subtasks = new ArrayList<>();
+                long[] moves = new long[Board.MAX_MOVES];
+                int n = _board.getMoves(moves);
+                for (int i = 0; i < n; i += 1) {
+                    Board next = new Board(_board);
+                    next.makeMove(moves[i]);
+                    subtasks.add(new Task(next, _depth - 1));
+                }
+            }
+            invokeAll(subtasks);
+            long total = 0;
+            for (Task task : subtasks) {
+                total += task.join();
+            }
+            return total;
+        }
+
+        /** Compute my count in the current thread. */
+        void sequential() {
+            _result = new Perft(_board).count(_depth);
+        }
+
+        /** Return my count, as computed by sequential() or by running
+         *  me in a ForkJoinPool. */
+        long result() {
+            return isDone() ? join() : _result;
+        }
+
+        /** The position counted from, or null for a task that only
+         *  combines subtasks. */
+        private final Board _board;
+        /** The depth counted to. */
+        private final int _depth;
+        /** Subtasks given at construction, or null. */
+        private final ArrayList<Task> _subtasks;
+        /** Result computed by sequential(). */
+        private long _result;
+    }
+
+    /** The board being counted from. */
+    private final Board _board;
+    /** Move buffers, one for each remaining depth. */
+    private final ArrayList<long[]> _moves = new ArrayList<>();
+}
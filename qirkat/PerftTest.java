@@ -0,0 +1,85 @@
+package qirkat;
+
+import java.util.HashSet;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static qirkat.PieceColor.*;
+
+/** Tests of perft counting.
+ *  @author Chelsea Chen
+ */
+public class PerftTest {
+
+    /** Return the perft count of B to DEPTH, computed with
+     *  Board.getMoves(), Board.legalMove, and Board.makeMove(Move). */
+    private static long slowPerft(Board b, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long total = 0;
+        HashSet<Long> seen = new HashSet<>();
+        for (Move mov : b.getMoves()) {
+            if (b.legalMove(mov) && seen.add(Board.encode(mov))) {
+                b.makeMove(mov);
+                total += slowPerft(b, depth - 1);
+                b.undo();
+            }
+        }
+        return total;
+    }
+
+    /** A middlegame position with multi-jumps available. */
+    private static Board jumpsBoard() {
+        Board b = new Board();
+        b.setPieces("-wwww -ww-- ----w bbbb- -b-bw", WHITE);
+        return b;
+    }
+
+    @Test
+    public void testInitial() {
+        Board b = new Board();
+        long[] expected = { 1, 4, 5, 6, 12, 27, 95 };
+        for (int d = 0; d < expected.length; d += 1) {
+            assertEquals("depth " + d, expected[d], Perft.perft(b, d, 1));
+        }
+        assertEquals(new Board().toString(), b.toString());
+    }
+
+    @Test
+    public void testAgainstMoves() {
+        for (Board b : new Board[] { new Board(), jumpsBoard() }) {
+            for (int d = 0; d <= 5; d += 1) {
+                assertEquals(slowPerft(new Board(b), d),
+                             Perft.perft(b, d, 1));
+            }
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        Board b = jumpsBoard();
+        for (int d = 0; d <= 6; d += 1) {
+            assertEquals(Perft.perft(b, d, 1), Perft.perft(b, d, 4));
+        }
+    }
+
+    @Test
+    public void testDivide() {
+        Board b = jumpsBoard();
+        for (int threads = 1; threads <= 4; threads += 3) {
+            TreeMap<String, Long> counts = Perft.divide(b, 5, threads);
+            assertEquals(Perft.perft(b, 1, 1), counts.size());
+            long total = 0;
+            for (long n : counts.values()) {
+                total += n;
+            }
+            assertEquals(Perft.perft(b, 5, 1), total);
+        }
+        Board start = new Board();
+        assertEquals("{b2-c3=1, c2-c3=1, d2-c3=2, d3-c3=1}",
+                     Perft.divide(start, 2, 1).toString());
+    }
+}
@@ -31,6 +31,11 @@ abstract class Player {
      *  board.whoseMove() == myColor and that !board.gameOver(). */
     abstract Move myMove();
 
+    /** Stop any search for a future move that I am making in the
+     *  background (see AI.ponder).  Does nothing by default. */
+    void stopPondering() {
+    }
+
     /** The game I am playing in. */
     private final Game _game;
     /** The color of my pieces. */
@@ -0,0 +1,253 @@
+package qirkat;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static qirkat.PieceColor.*;
+
+/** A check of the moves in a file, without playing them.  The file is
+ *  either a file of commands, as read by the 'load' command, or a file
+ *  of GameRecords.  Each move is checked against the legal moves of
+ *  its position and made in its encoded form (see Board.encode) on a
+ *  Board that nothing observes.  The board therefore builds no list of
+ *  Moves (getStack() stays empty), though it still saves the state that
+ *  undo() would restore; no notices are sent, and no messages are
+ *  printed along the way.  A Replay only collects the errors it finds
+ *  and the position it ends in.
+ *
+ *  In a file of commands, only the commands that change the position
+ *  ('clear', 'set', moves, and 'load' of another file) or that start
+ *  and stop play ('start', 'auto', and 'manual') have any effect, and
+ *  the first error or 'quit' ends the replay.  The other commands are
+ *  ignored, so an 'auto' player contributes no moves.  As in
+ *  Game.process, a game ends when play reaches a finished position or
+ *  is stopped by 'clear', 'auto', or 'manual', and the next command
+ *  then starts a new game on a cleared board, so one file may hold
+ *  many games.  In a file
+ *  of records, every game is checked from its starting position, and
+ *  the winner recorded for a finished game must agree with the final
+ *  position.
+ *  @author Chelsea Chen
+ */
+class Replay {
+
+    /** A replay of the file named FILENAME. */
+    Replay(String fileName) {
+        _fileName = fileName;
+    }
+
+    /** Replay my file.  Throws IOException if it cannot be read. */
+    void run() throws IOException {
+        if (GameRecord.isRecordFile(_fileName)) {
+            _records = true;
+            replayRecords();
+        } else {
+            _games = 1;
+            replayCommands(_fileName);
+        }
+    }
+
+    /** Return true iff my file is a file of GameRecords. */
+    boolean records() {
+        return _records;
+    }
+
+    /** Return the position at the end of the last game replayed. */
+    Board board() {
+        return _board;
+    }
+
+    /** Return the number of games replayed. */
+    int games() {
+        return _games;
+    }
+
+    /** Return the number of moves made. */
+    int moves() {
+        return _moves;
+    }
+
+    /** Return the errors found, in order. */
+    List<String> errors() {
+        return _errors;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d game%s, %d moves, %d error%s",
+                             _fileName, _games, _games == 1 ? "" : "s",
+                             _moves, _errors.size(),
+                             _errors.size() == 1 ? "" : "s");
+    }
+
+    /** Execute the commands in the file named FILENAME.  Return false
+     *  if the replay is to stop because of an error or a 'quit'.  Throws
+     *  IOException if the file cannot be read. */
+    private boolean replayCommands(String fileName) throws IOException {
+        try (BufferedReader input =
+             new BufferedReader(new FileReader(fileName), BUFFER_SIZE)) {
+            int lineNumber = 0;
+            for (String line = input.readLine(); line != null;
+                 line = input.readLine()) {
+                lineNumber += 1;
+                int comment = line.indexOf('#');
+                if (comment != -1) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (line.length() > 0
+                    && !execute(line, fileName, lineNumber)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Execute the command LINE, which is neither blank nor a comment,
+     *  from line LINENUMBER of the file named FILENAME.  Return false if
+     *  the replay is to stop, having added a message to _errors if that
+     *  is because of an error. */
+    private boolean execute(String line, String fileName, int lineNumber) {
+        Command cmnd = Command.parseCommand(line);
+        String[] operands = cmnd.operands();
+        String error;
+        if (_gameEnded) {
+            _gameEnded = false;
+            _board.clear();
+            _games += 1;
+        }
+        switch (cmnd.commandType()) {
+        case PIECEMOVE:
+            Move mov;
+            try {
+                mov = Move.parseMove(operands[0]);
+            } catch (IllegalArgumentException excp) {
+                mov = null;
+            }
+            if (mov == null || !legal(mov)) {
+                error = "illegal move " + operands[0];
+                break;
+            }
+            _board.makeMove(Board.encode(mov));
+            _moves += 1;
+            if (_playing && _board.gameOver()) {
+                endGame();
+            }
+            return true;
+        case START:
+            _playing = true;
+            if (_board.gameOver()) {
+                endGame();
+            }
+            return true;
+        case AUTO: case MANUAL:
+            if (_playing) {
+                endGame();
+            }
+            return true;
+        case SETBOARD:
+            if (operands[0].equals("white")) {
+                _board.setPieces(operands[1], WHITE);
+            } else if (operands[0].equals("black")) {
+                _board.setPieces(operands[1], BLACK);
+            }
+            return true;
+        case CLEAR:
+            _board.clear();
+            if (_playing) {
+                endGame();
+            }
+            return true;
+        case LOAD:
+            try {
+                return replayCommands(operands[0]);
+            } catch (IOException excp) {
+                error = "cannot read file " + operands[0];
+                break;
+            }
+        case QUIT:
+            return false;
+        case ERROR:
+            error = "command not understood: " + line;
+            break;
+        default:
+            return true;
+        }
+        _errors.add(String.format("%s:%d: %s", fileName, lineNumber, error));
+        return false;
+    }
+
+    /** Record that the game being played from a file of commands has
+     *  ended, so that the next command starts a new one. */
+    private void endGame() {
+        _playing = false;
+        _gameEnded = true;
+    }
+
+    /** Check each game in my file of GameRecords.  Throws IOException
+     *  if the file cannot be read or is malformed. */
+    private void replayRecords() throws IOException {
+        try (GameRecord.Reader reader = new GameRecord.Reader(_fileName)) {
+            for (GameRecord game = reader.next(); game != null;
+                 game = reader.next()) {
+                _games += 1;
+                _board = game.start();
+                String error = null;
+                int ply = 0;
+                for (Move mov : game.moves()) {
+                    ply += 1;
+                    if (!legal(mov)) {
+                        error = String.format("illegal move %d (%s)", ply,
+                                              mov);
+                        break;
+                    }
+                    _board.makeMove(Board.encode(mov));
+                    _moves += 1;
+                }
+                if (error == null && game.winner() != null
+                    && (!_board.gameOver()
+                        || _board.getWinner() != game.winner())) {
+                    error = "result does not match final position";
+                }
+                if (error != null) {
+                    _errors.add(String.format("%s: game %d: %s", _fileName,
+                                              _games, error));
+                }
+            }
+        }
+    }
+
+    /** Return true iff MOV is legal in the position on _board.  Since
+     *  each position is checked only once, the board looks through its
+     *  moves rather than indexing them (see Board.legalMove). */
+    private boolean legal(Move mov) {
+        return _board.legalMove(mov, _legalMoves);
+    }
+
+    /** Size of the buffer used to read files of commands, in
+     *  characters. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Name of the file replayed. */
+    private final String _fileName;
+    /** True iff my file is a file of GameRecords. */
+    private boolean _records;
+    /** The board on which moves are made. */
+    private Board _board = new Board();
+    /** Numbers of games replayed and moves made. */
+    private int _games, _moves;
+    /** True iff a game from a file of commands is in play (after
+     *  'start'), as opposed to being set up. */
+    private boolean _playing;
+    /** True iff the last game from a file of commands has ended, and
+     *  the board is to be cleared for a new one by the next command. */
+    private boolean _gameEnded;
+    /** Buffer for the encoded legal moves of a position. */
+    private final long[] _legalMoves = new long[Board.MAX_MOVES];
+    /** Errors found. */
+    private final ArrayList<String> _errors = new ArrayList<>();
+}
@@ -0,0 +1,128 @@
+package qirkat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of replaying files.
+ *  @author Chelsea Chen
+ */
+public class ReplayTest {
+
+    /** Return a new temporary file containing LINES. */
+    private static File commandFile(String... lines) throws IOException {
+        File file = File.createTempFile("qirkat", ".inp");
+        Files.write(file.toPath(), Arrays.asList(lines));
+        return file;
+    }
+
+    @Test
+    public void testCommands() throws IOException {
+        File inner = commandFile("a3-c1", "c3-a3  # back");
+        File outer = commandFile("# A game", "manual Black", "start",
+                                 "c2-c3", "", "c4-c2", "c1-c3",
+                                 "load " + inner.getPath(), "dump");
+        try {
+            Replay replay = new Replay(outer.getPath());
+            replay.run();
+            assertFalse(replay.records());
+            assertEquals(Arrays.asList(), replay.errors());
+            assertEquals(1, replay.games());
+            assertEquals(5, replay.moves());
+            Board b = new Board();
+            for (String mov : new String[] {
+                    "c2-c3", "c4-c2", "c1-c3", "a3-c1", "c3-a3" }) {
+                b.makeMove(Move.parseMove(mov));
+            }
+            assertEquals(b, replay.board());
+            assertEquals(b.key(), replay.board().key());
+        } finally {
+            inner.delete();
+            outer.delete();
+        }
+    }
+
+    @Test
+    public void testSeveralGames() throws IOException {
+        File file = commandFile("set white w---- -b--- ----- ----- -----",
+                                "start", "a1-c3", "start", "c2-c3",
+                                "c4-c2", "clear", "start", "b2-c3");
+        try {
+            Replay replay = new Replay(file.getPath());
+            replay.run();
+            assertEquals(Arrays.asList(), replay.errors());
+            assertEquals(3, replay.games());
+            assertEquals(4, replay.moves());
+            Board b = new Board();
+            b.makeMove(Move.parseMove("b2-c3"));
+            assertEquals(b, replay.board());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        File file = commandFile("c2-c3", "c4-c2", "c2-c4", "c1-c3");
+        try {
+            Replay replay = new Replay(file.getPath());
+            replay.run();
+            assertEquals(Arrays.asList(file.getPath()
+                                       + ":3: illegal move c2-c4"),
+                         replay.errors());
+            assertEquals(2, replay.moves());
+        } finally {
+            file.delete();
+        }
+        file = commandFile("set white wwwww wwwww ww-bb bbbbb bbbbb",
+                           "bogus", "c3-d3");
+        try {
+            Replay replay = new Replay(file.getPath());
+            replay.run();
+            assertEquals(Arrays.asList(file.getPath()
+                                       + ":2: command not understood: "
+                                       + "bogus"),
+                         replay.errors());
+            assertEquals(0, replay.moves());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRecords() throws IOException {
+        File file = File.createTempFile("qirkat", ".games");
+        file.delete();
+        Random random = new Random(2);
+        long[] moves = new long[Board.MAX_MOVES];
+        int total = 0;
+        try {
+            try (GameRecord.Writer out =
+                 new GameRecord.Writer(file.getPath())) {
+                for (int i = 0; i < 3; i += 1) {
+                    Board b = new Board();
+                    while (!b.gameOver()) {
+                        int n = b.getMoves(moves);
+                        b.makeMove(b.decode(moves[random.nextInt(n)]));
+                        total += 1;
+                    }
+                    out.write(new GameRecord(b, "A", "B"));
+                }
+            }
+            Replay replay = new Replay(file.getPath());
+            replay.run();
+            assertTrue(replay.records());
+            assertEquals(Arrays.asList(), replay.errors());
+            assertEquals(3, replay.games());
+            assertEquals(total, replay.moves());
+            assertTrue(replay.board().gameOver());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -17,4 +17,8 @@ interface Reporter {
      *  formed from FORMAT and OPERANDS as for String.format. */
     void moveMsg(String format, Object... operands);
 
+    /** Display a message giving statistics about an AI's search,
+     *  formed from FORMAT and OPERANDS as for String.format. */
+    void statsMsg(String format, Object... operands);
+
 }
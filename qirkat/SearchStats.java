@@ -0,0 +1,123 @@
+package qirkat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/** Counters describing one or more AI searches.  A SearchStats
+ *  accumulates the counts of each thread of a search and then of
+ *  successive searches, for comparison of runs.
+ *  @author Chelsea Chen
+ */
+class SearchStats {
+
+    /** Add the counts from one thread's search: NODES positions
+     *  visited, of which LEAVES were evaluated statically and INTERIOR
+     *  had their moves generated; CHILDREN moves made from interior
+     *  nodes; CUTOFFS beta cutoffs, FIRSTCUTOFFS of them on the first
+     *  move searched; PROBES transposition-table probes, of which HITS
+     *  found an entry; and ALLOCATED bytes allocated (negative if
+     *  unknown). */
+    void add(long nodes, long leaves, long interior, long children,
+             long cutoffs, long firstCutoffs, long probes, long hits,
+             long allocated) {
+        _nodes += nodes;
+        _leaves += leaves;
+        _interior += interior;
+        _children += children;
+        _cutoffs += cutoffs;
+        _firstCutoffs += firstCutoffs;
+        _probes += probes;
+        _hits += hits;
+        if (allocated < 0 || _allocated < 0) {
+            _allocated = -1;
+        } else {
+            _allocated += allocated;
+        }
+    }
+
+    /** Record the end of a search that reached depth DEPTH after
+     *  NANOS nanoseconds. */
+    void endSearch(int depth, long nanos) {
+        _searches += 1;
+        _depth += depth;
+        _nanos += nanos;
+    }
+
+    /** Add all of the counts in OTHER to mine. */
+    void add(SearchStats other) {
+        add(other._nodes, other._leaves, other._interior, other._children,
+            other._cutoffs, other._firstCutoffs, other._probes, other._hits,
+            other._allocated);
+        _searches += other._searches;
+        _depth += other._depth;
+        _nanos += other._nanos;
+    }
+
+    /** Return the number of searches recorded by endSearch. */
+    int searches() {
+        return _searches;
+    }
+
+    /** Return the average depth reached per search. */
+    double depth() {
+        return _searches == 0 ? 0.0 : (double) _depth / _searches;
+    }
+
+    /** Return the average number of moves searched per interior
+     *  node. */
+    double branchingFactor() {
+        return _interior == 0 ? 0.0 : (double) _children / _interior;
+    }
+
+    /** Return the number of nodes visited per second. */
+    double nodesPerSecond() {
+        return _nanos == 0 ? 0.0 : _nodes * 1e9 / _nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth %.2f, %d nodes (%d leaves) in %d msec, "
+                             + "%.0f nodes/sec, branching %.2f, "
+                             + "%d cutoffs (%.1f%% first move), "
+                             + "%.1f%% TT hits, %s allocated",
+                             depth(), _nodes, _leaves, _nanos / 1_000_000,
+                             nodesPerSecond(), branchingFactor(), _cutoffs,
+                             percent(_firstCutoffs, _cutoffs),
+                             percent(_hits, _probes),
+                             _allocated < 0 ? "unknown"
+                             : (_allocated >> 10) + " KB");
+    }
+
+    /** Return the number of bytes allocated so far by the current
+     *  thread, or -1 if the JVM does not say. */
+    static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean =
+                (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()
+                && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /** Return 100 * PART / WHOLE, or 0 if WHOLE is 0. */
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0.0 : 100.0 * part / whole;
+    }
+
+    /** Number of searches recorded. */
+    private int _searches;
+    /** Sum of the depths reached by the searches. */
+    private long _depth;
+    /** Total elapsed time of the searches, in nanoseconds. */
+    private long _nanos;
+    /** Counts described in add. */
+    private long _nodes, _leaves, _interior, _children, _cutoffs,
+        _firstCutoffs, _probes, _hits;
+    /** Bytes allocated, or -1 if unknown. */
+    private long _allocated;
+}
@@ -0,0 +1,341 @@
+package qirkat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import static qirkat.PieceColor.*;
+import static qirkat.Move.SIDE;
+
+/** Endgame tablebases: the outcome under perfect play of every position
+ *  with at most maxPieces() pieces on the board, with either side to
+ *  move and any horizontal-direction flags on the pieces.
+ *
+ *  Each position has a one-byte entry.  Entry 0 means that the position
+ *  is not covered.  DRAW means the game is drawn.  Any other entry E
+ *  records whether the player to move wins (isWin(E)) and the number of
+ *  plies until the game ends with best play (distance(E)), where the
+ *  winner hurries and the loser delays.
+ *
+ *  A move is either irreversible (a capture or a forward step) or a
+ *  horizontal step.  The direction flags keep a piece moving the same way
+ *  between irreversible moves, so no position can recur.  The generator
+ *  therefore scores positions by backward induction from the ends of
+ *  games: a memoized search, starting from each position with all the
+ *  smaller tables already complete.  As a result, no position is
+ *  actually a draw.
+ *
+ *  The file format is a header of two ints (MAGIC and maxPieces()),
+ *  followed by the tables for 2, 3, ... maxPieces() pieces.  The file is
+ *  memory-mapped when loaded, so a probe touches only the page it
+ *  needs.
+ *  @author Chelsea Chen
+ */
+class Tablebase {
+
+    /** Largest number of pieces for which tables may be built. */
+    static final int MAX_PIECES = 5;
+
+    /** The entry for a drawn position. */
+    static final int DRAW = 1;
+
+    /** Generate the tables for up to ARGS[0] pieces and write them to the
+     *  file named ARGS[1]. */
+    public static void main(String... args) {
+        if (args.length != 2 || !args[0].matches("\\d")) {
+            System.err.println("Usage: java qirkat.Tablebase N FILE");
+            System.exit(1);
+        }
+        int maxPieces = Integer.parseInt(args[0]);
+        if (maxPieces < 2 || maxPieces > MAX_PIECES) {
+            System.err.printf("Number of pieces must be between 2 and %d.%n",
+                              MAX_PIECES);
+            System.exit(1);
+        }
+        try {
+            generate(maxPieces).write(args[1]);
+        } catch (IOException excp) {
+            System.err.printf("Could not write %s.%n", args[1]);
+            System.exit(1);
+        }
+    }
+
+    /** Return a new Tablebase for up to MAXPIECES pieces, where
+     *  2 <= MAXPIECES <= MAX_PIECES, computed in memory. */
+    static Tablebase generate(int maxPieces) {
+        ByteBuffer[] tables = new ByteBuffer[maxPieces + 1];
+        for (int k = 2; k <= maxPieces; k += 1) {
+            tables[k] = ByteBuffer.allocate(tableSize(k));
+        }
+        Tablebase result = new Tablebase(maxPieces, tables);
+        for (int k = 2; k <= maxPieces; k += 1) {
+            result.fill(k);
+        }
+        return result;
+    }
+
+    /** Return the Tablebase in the file named FILENAME, as written by
+     *  write. */
+    static Tablebase load(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE
+                || header.getInt() != MAGIC) {
+                throw new IOException("not a tablebase: " + fileName);
+            }
+            int maxPieces = header.getInt();
+            if (maxPieces < 2 || maxPieces > MAX_PIECES) {
+                throw new IOException("bad tablebase: " + fileName);
+            }
+            ByteBuffer[] tables = new ByteBuffer[maxPieces + 1];
+            long offset = HEADER_SIZE;
+            for (int k = 2; k <= maxPieces; k += 1) {
+                if (offset + tableSize(k) > channel.size()) {
+                    throw new IOException("truncated tablebase: "
+                                          + fileName);
+                }
+                tables[k] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                        offset, tableSize(k));
+                offset += tableSize(k);
+            }
+            return new Tablebase(maxPieces, tables);
+        }
+    }
+
+    /** Write me to the file named FILENAME in the form read by load. */
+    void write(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+            FileChannel channel = file.getChannel();
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(_maxPieces).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            for (int k = 2; k <= _maxPieces; k += 1) {
+                ByteBuffer table = _tables[k].duplicate();
+                table.clear();
+                while (table.hasRemaining()) {
+                    channel.write(table);
+                }
+            }
+        }
+    }
+
+    /** A Tablebase for up to MAXPIECES pieces whose entries for K pieces
+     *  are in TABLES[K]. */
+    private Tablebase(int maxPieces, ByteBuffer[] tables) {
+        _maxPieces = maxPieces;
+        _tables = tables;
+    }
+
+    /** Return the largest number of pieces covered. */
+    int maxPieces() {
+        return _maxPieces;
+    }
+
+    /** Return my entry for the position on BOARD, or 0 if it is not
+     *  covered because it has too many pieces or a side has none. */
+    int probe(Board board) {
+        int white = board.pieces(WHITE), black = board.pieces(BLACK);
+        int k = Integer.bitCount(white | black);
+        if (k > _maxPieces || white == 0 || black == 0) {
+            return 0;
+        }
+        return _tables[k].get(index(board)) & 0xff;
+    }
+
+    /** Return true iff ENTRY, which is neither 0 nor DRAW, records a win
+     *  for the player to move. */
+    static boolean isWin(int entry) {
+        return (entry & 1) != 0;
+    }
+
+    /** Return the number of plies to the end of the game recorded by
+     *  ENTRY, which is neither 0 nor DRAW. */
+    static int distance(int entry) {
+        return (entry - 2) >> 1;
+    }
+
+    /** Return the entry recording a WIN or loss for the player to move
+     *  in DISTANCE plies. */
+    private static int entry(boolean win, int distance) {
+        assert distance <= MAX_DISTANCE;
+        return 2 + 2 * distance + (win ? 1 : 0);
+    }
+
+    /** Fill in every entry of my table for K pieces, assuming that the
+     *  tables for fewer pieces are complete. */
+    private void fill(int k) {
+        Board board = new Board();
+        int flagCombinations = POWERS_OF_3[k];
+        int last = ((1 << k) - 1) << (SIDE * SIDE - k);
+        for (int occupied = (1 << k) - 1; ; occupied = nextMask(occupied)) {
+            for (int colors = 1; colors < (1 << k) - 1; colors += 1) {
+                int white = 0, black = 0;
+                int m = occupied;
+                for (int i = 0; i < k; i += 1, m &= m - 1) {
+                    int bit = Integer.lowestOneBit(m);
+                    if ((colors & (1 << i)) != 0) {
+                        black |= bit;
+                    } else {
+                        white |= bit;
+                    }
+                }
+                for (int f = 0; f < flagCombinations; f += 1) {
+                    int left = 0, right = 0;
+                    m = occupied;
+                    for (int digits = f; m != 0; digits /= 3, m &= m - 1) {
+                        if (digits % 3 == 1) {
+                            left |= Integer.lowestOneBit(m);
+                        } else if (digits % 3 == 2) {
+                            right |= Integer.lowestOneBit(m);
+                        }
+                    }
+                    board.setPosition(white, black, left, right, WHITE);
+                    solve(board, 0);
+                    board.setPosition(white, black, left, right, BLACK);
+                    solve(board, 0);
+                }
+            }
+            if (occupied == last) {
+                break;
+            }
+        }
+    }
+
+    /** Return the entry for BOARD, which is covered, computing it and the
+     *  entries of all positions reachable from it that have the same
+     *  number of pieces, if not already done.  PLY is the depth of the
+     *  recursion.  BOARD is unchanged on return. */
+    private int solve(Board board, int ply) {
+        ByteBuffer table =
+            _tables[Integer.bitCount(board.pieces(WHITE)
+                                     | board.pieces(BLACK))];
+        int index = index(board);
+        int result = table.get(index) & 0xff;
+        if (result != 0) {
+            return result;
+        }
+        if (board.gameOver()) {
+            result = entry(false, 0);
+        } else {
+            if (ply == _moveLists.length) {
+                _moveLists = Arrays.copyOf(_moveLists, 2 * ply);
+            }
+            if (_moveLists[ply] == null) {
+                _moveLists[ply] = new long[Board.MAX_MOVES];
+            }
+            long[] moves = _moveLists[ply];
+            int n = board.getMoves(moves);
+            int winDistance = Integer.MAX_VALUE, lossDistance = 0;
+            for (int i = 0; i < n; i += 1) {
+                board.makeMove(moves[i]);
+                int child;
+                if (board.gameOver()) {
+                    child = entry(false, 0);
+                } else {
+                    child = solve(board, ply + 1);
+                }
+                board.undo();
+                if (isWin(child)) {
+                    lossDistance =
+                        Math.max(lossDistance, distance(child) + 1);
+                } else {
+                    winDistance =
+                        Math.min(winDistance, distance(child) + 1);
+                }
+            }
+            if (winDistance != Integer.MAX_VALUE) {
+                result = entry(true, winDistance);
+            } else {
+                result = entry(false, lossDistance);
+            }
+        }
+        table.put(index, (byte) result);
+        return result;
+    }
+
+    /** Return the index within its table of the position on BOARD.  The
+     *  index combines, in order of significance, the rank of the set of
+     *  occupied squares among sets of the same size; the colors of the
+     *  pieces; their horizontal-direction flags; and the player to
+     *  move. */
+    private static int index(Board board) {
+        int white = board.pieces(WHITE), black = board.pieces(BLACK),
+            left = board.movedLeft(), right = board.movedRight();
+        int occupied = white | black;
+        int rank = 0, colors = 0, flags = 0, i = 0, weight = 1;
+        for (int m = occupied; m != 0; m &= m - 1, i += 1) {
+            int k = Integer.numberOfTrailingZeros(m), bit = 1 << k;
+            rank += BINOMIALS[k][i + 1];
+            if ((black & bit) != 0) {
+                colors |= 1 << i;
+            }
+            if ((left & bit) != 0) {
+                flags += weight;
+            } else if ((right & bit) != 0) {
+                flags += 2 * weight;
+            }
+            weight *= 3;
+        }
+        int side = board.whoseMove() == WHITE ? 0 : 1;
+        return (((rank << i) + colors) * weight + flags) * 2 + side;
+    }
+
+    /** Return the next larger int than MASK with the same number of one
+     *  bits. */
+    private static int nextMask(int mask) {
+        int low = mask & -mask, ripple = mask + low;
+        return ripple | (((mask ^ ripple) >>> 2) / low);
+    }
+
+    /** Return the number of entries in the table for K pieces. */
+    private static int tableSize(int k) {
+        return BINOMIALS[SIDE * SIDE][k] * (1 << k) * POWERS_OF_3[k] * 2;
+    }
+
+    /** Identifies a tablebase file ("QTB1"). */
+    private static final int MAGIC = 0x51544231;
+
+    /** Size of the file header in bytes. */
+    private static final int HEADER_SIZE = 8;
+
+    /** Largest distance that fits in an entry. */
+    private static final int MAX_DISTANCE = 126;
+
+    /** BINOMIALS[n][k] is n choose k, for 0 <= n <= 25 and
+     *  0 <= k <= MAX_PIECES. */
+    private static final int[][] BINOMIALS =
+        new int[SIDE * SIDE + 1][MAX_PIECES + 1];
+
+    /** POWERS_OF_3[k] is 3 to the K. */
+    private static final int[] POWERS_OF_3 = new int[MAX_PIECES + 1];
+
+    static {
+        for (int n = 0; n <= SIDE * SIDE; n += 1) {
+            BINOMIALS[n][0] = 1;
+            for (int k = 1; k <= MAX_PIECES && n > 0; k += 1) {
+                BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + BINOMIALS[n - 1][k];
+            }
+        }
+        POWERS_OF_3[0] = 1;
+        for (int k = 1; k <= MAX_PIECES; k += 1) {
+            POWERS_OF_3[k] = 3 * POWERS_OF_3[k - 1];
+        }
+    }
+
+    /** Largest number of pieces covered. */
+    private final int _maxPieces;
+
+    /** _tables[k] holds the entries for positions with K pieces. */
+    private final ByteBuffer[] _tables;
+
+    /** Move lists for each ply of solve, created as needed. */
+    private long[][] _moveLists = new long[64][];
+}
@@ -0,0 +1,114 @@
+package qirkat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static qirkat.PieceColor.*;
+
+/** Tests of endgame tablebases.
+ *  @author Chelsea Chen
+ */
+public class TablebaseTest {
+
+    /** A tablebase for up to three pieces, shared by the tests. */
+    private static final Tablebase TB3 = Tablebase.generate(3);
+
+    /** Return the tablebase entry for B computed from the entries in TB
+     *  of the positions after each move. */
+    private static int solve(Board b, Tablebase tb) {
+        if (b.gameOver()) {
+            return 2;
+        }
+        long[] moves = new long[Board.MAX_MOVES];
+        int n = b.getMoves(moves);
+        int win = Integer.MAX_VALUE, loss = 0;
+        for (int i = 0; i < n; i += 1) {
+            b.makeMove(moves[i]);
+            int child = b.gameOver() ? 2 : tb.probe(b);
+            b.undo();
+            if (Tablebase.isWin(child)) {
+                loss = Math.max(loss, Tablebase.distance(child) + 1);
+            } else {
+                win = Math.min(win, Tablebase.distance(child) + 1);
+            }
+        }
+        return win == Integer.MAX_VALUE ? 2 + 2 * loss : 3 + 2 * win;
+    }
+
+    /** Return a random position on a new Board with K pieces of which
+     *  at least one is white and one black, chosen using R. */
+    private static Board randomPosition(int k, Random r) {
+        int white = 0, black = 0, left = 0, right = 0;
+        for (int i = 0; i < k; i += 1) {
+            int bit;
+            do {
+                bit = 1 << r.nextInt(Move.SIDE * Move.SIDE);
+            } while (((white | black) & bit) != 0);
+            if (i == 0 || (i > 1 && r.nextBoolean())) {
+                white |= bit;
+            } else {
+                black |= bit;
+            }
+            switch (r.nextInt(3)) {
+            case 1:
+                left |= bit;
+                break;
+            case 2:
+                right |= bit;
+                break;
+            default:
+                break;
+            }
+        }
+        Board b = new Board();
+        b.setPosition(white, black, left, right,
+                      r.nextBoolean() ? WHITE : BLACK);
+        return b;
+    }
+
+    @Test
+    public void testConsistent() {
+        Random r = new Random(17);
+        for (int i = 0; i < 5000; i += 1) {
+            Board b = randomPosition(2 + r.nextInt(2), r);
+            assertEquals(b.toString(), solve(b, TB3), TB3.probe(b));
+        }
+        assertEquals(0, TB3.probe(new Board()));
+    }
+
+    @Test
+    public void testSimple() {
+        Tablebase tb = TB3;
+        Board b = new Board();
+        b.setPieces("----- ----- --w-- --b-- -----", BLACK);
+        int entry = tb.probe(b);
+        assertTrue(Tablebase.isWin(entry));
+        assertEquals(1, Tablebase.distance(entry));
+        b.setPieces("----- ----- --w-- --b-- -----", WHITE);
+        entry = tb.probe(b);
+        assertTrue(Tablebase.isWin(entry));
+        assertEquals(1, Tablebase.distance(entry));
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        Tablebase tb = TB3;
+        File file = File.createTempFile("qirkat", ".tb");
+        try {
+            tb.write(file.getPath());
+            Tablebase loaded = Tablebase.load(file.getPath());
+            assertEquals(3, loaded.maxPieces());
+            Random r = new Random(18);
+            for (int i = 0; i < 1000; i += 1) {
+                Board b = randomPosition(2 + r.nextInt(2), r);
+                assertEquals(tb.probe(b), loaded.probe(b));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
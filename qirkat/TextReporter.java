@@ -23,5 +23,11 @@ class TextReporter implements Reporter {
         System.out.println();
     }
 
+    @Override
+    public void statsMsg(String format, Object... args) {
+        System.err.printf(format, args);
+        System.err.println();
+    }
+
 }
 
@@ -0,0 +1,276 @@
+package qirkat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static qirkat.PieceColor.*;
+
+/** A match of many games between two AIs, played without any display or
+ *  command input, several at a time.  Each game has its own Game and
+ *  Board.  Games come in pairs that start from the same position, reached
+ *  by OPENING_PLIES random moves, with the players' colors swapped, so
+ *  that neither player gains from a lopsided opening.
+ *  @author Chelsea Chen
+ */
+class Tournament {
+
+    /** Number of random moves that start each pair of games. */
+    static final int OPENING_PLIES = 4;
+
+    /** Return the Evaluator named NAME ("weighted" or "material"), or
+     *  null if there is none. */
+    static Evaluator evaluator(String name) {
+        switch (name) {
+        case "weighted":
+            return WeightedEvaluator.DEFAULT;
+        case "material":
+            return new MaterialEvaluator();
+        default:
+            return null;
+        }
+    }
+
+    /** A tournament between an AI using the Evaluator named FIRST and one
+     *  using the Evaluator named SECOND (see evaluator), each allowed
+     *  TIMELIMIT milliseconds per move and using TABLEBASE and BOOK (null
+     *  for none). */
+    Tournament(String first, String second, long timeLimit,
+               Tablebase tablebase, OpeningBook book) {
+        _names = new String[] { first, second };
+        _evaluators = new Evaluator[] { evaluator(first), evaluator(second) };
+        if (_evaluators[0] == null || _evaluators[1] == null) {
+            throw new IllegalArgumentException("unknown evaluator");
+        }
+        _timeLimit = timeLimit;
+        _tablebase = tablebase;
+        _book = book;
+    }
+
+    /** Append a record of each game I play hereafter to RECORDER (none
+     *  if null). */
+    void setRecorder(GameRecord.Writer recorder) {
+        _recorder = recorder;
+    }
+
+    /** Play GAMES games, THREADS at a time, the openings of game pair K
+     *  being chosen with random seed SEED + K, and add their results to
+     *  my totals.  Throws IOException if a game cannot be recorded. */
+    void play(int games, int threads, long seed) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            ArrayList<Future<Outcome>> outcomes = new ArrayList<>();
+            for (int i = 0; i < games; i += 1) {
+                long gameSeed = seed + i / 2;
+                boolean firstIsWhite = i % 2 == 0;
+                outcomes.add(pool.submit(() -> playGame(gameSeed,
+                                                        firstIsWhite)));
+            }
+            for (Future<Outcome> outcome : outcomes) {
+                tally(outcome.get());
+            }
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof IOException) {
+                throw (IOException) excp.getCause();
+            }
+            throw new Error("Internal failure: self-play game failed",
+                            excp.getCause());
+        } catch (InterruptedException excp) {
+            throw new Error("Internal failure: self-play interrupted", excp);
+        } finally {
+            pool.shutdown();
+        }
+        _nanos += System.nanoTime() - start;
+    }
+
+    /** Return the number of games played. */
+    int games() {
+        return _wins + _losses;
+    }
+
+    /** Return the number of games won by the first player. */
+    int wins() {
+        return _wins;
+    }
+
+    /** Return the number of games lost by the first player. */
+    int losses() {
+        return _losses;
+    }
+
+    /** Return the first player's average score per game: 1 for a win
+     *  and 0 for a loss. */
+    double score() {
+        return games() == 0 ? 0.5 : (double) _wins / games();
+    }
+
+    /** Return the Elo rating difference implied by an average score of
+     *  SCORE per game, 0 < SCORE < 1. */
+    static double elo(double score) {
+        return 400.0 * Math.log10(score / (1.0 - score));
+    }
+
+    /** Return the half-width of the 95% confidence interval for
+     *  the Elo difference between my players, or infinity if it
+     *  is unbounded. */
+    double eloError() {
+        int n = games();
+        double s = score();
+        double error = Z_95 * Math.sqrt(s * (1.0 - s) / n);
+        if (n == 0 || s - error <= 0.0 || s + error >= 1.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (elo(s + error) - elo(s - error)) / 2.0;
+    }
+
+    @Override
+    public String toString() {
+        String elo;
+        if (_wins == 0 || _losses == 0) {
+            elo = "unbounded";
+        } else {
+            elo = String.format("%+.0f +/- %.0f", elo(score()), eloError());
+        }
+        int moves = _moves[0] + _moves[1];
+        return String.format("%d games of %s vs. %s, %d msec/move: "
+                             + "%d wins, %d losses (White won %d), "
+                             + "score %.1f%%, Elo difference %s%n"
+                             + "Average time per move: %s %.1f msec, "
+                             + "%s %.1f msec; %.1f moves/game; "
+                             + "%.1f sec elapsed",
+                             games(), _names[0], _names[1], _timeLimit,
+                             _wins, _losses, _whiteWins, 100.0 * score(),
+                             elo, _names[0], millisPerMove(0), _names[1],
+                             millisPerMove(1),
+                             games() == 0 ? 0.0 : (double) moves / games(),
+                             _nanos / 1e9);
+    }
+
+    /** Return the average time per move, in milliseconds, of player
+     *  number P (0 for the first and 1 for the second). */
+    private double millisPerMove(int p) {
+        return _moves[p] == 0 ? 0.0 : _moveNanos[p] / 1e6 / _moves[p];
+    }
+
+    /** Play a game starting with random moves chosen with random seed
+     *  SEED, the first player being White iff FIRSTISWHITE, and return
+     *  its outcome.  A player that fails to produce a legal move loses.
+     *  Throws IOException if the game cannot be recorded. */
+    private Outcome playGame(long seed, boolean firstIsWhite)
+        throws IOException {
+        Board board = new Board();
+        Game game = new Game(board,
+                             new ReaderSource(new StringReader(""), false),
+                             new TextReporter());
+        game.doSeed(new String[] { Long.toString(seed) });
+        game.doTime(new String[] { Long.toString(_timeLimit) });
+        game.setTablebase(_tablebase);
+        game.setOpeningBook(_book);
+
+        Random random = new Random(seed);
+        long[] moves = new long[Board.MAX_MOVES];
+        for (int k = 0; k < OPENING_PLIES && !board.gameOver(); k += 1) {
+            int n = board.getMoves(moves);
+            board.makeMove(board.decode(moves[random.nextInt(n)]));
+        }
+
+        int white = firstIsWhite ? 0 : 1;
+        AI[] players = {
+            new AI(game, firstIsWhite ? WHITE : BLACK, _evaluators[0]),
+            new AI(game, firstIsWhite ? BLACK : WHITE, _evaluators[1])
+        };
+        Outcome outcome = new Outcome(firstIsWhite);
+        PieceColor loser = null;
+        while (!board.gameOver()) {
+            int p = board.whoseMove() == WHITE ? white : 1 - white;
+            long start = System.nanoTime();
+            Move move = players[p].myMove();
+            outcome._moveNanos[p] += System.nanoTime() - start;
+            outcome._moves[p] += 1;
+            if (move == null || !board.legalMove(move)) {
+                loser = board.whoseMove();
+                break;
+            }
+            board.makeMove(move);
+        }
+        if (loser == null) {
+            loser = board.getWinner().opposite();
+        }
+        outcome._firstWon = (loser == WHITE) != firstIsWhite;
+        if (_recorder != null) {
+            _recorder.write(new GameRecord(board, _names[white],
+                                           _names[1 - white]));
+        }
+        return outcome;
+    }
+
+    /** Add OUTCOME to my totals. */
+    private void tally(Outcome outcome) {
+        if (outcome._firstWon) {
+            _wins += 1;
+        } else {
+            _losses += 1;
+        }
+        if (outcome._firstWon == outcome._firstIsWhite) {
+            _whiteWins += 1;
+        }
+        for (int p = 0; p < 2; p += 1) {
+            _moves[p] += outcome._moves[p];
+            _moveNanos[p] += outcome._moveNanos[p];
+        }
+    }
+
+    /** The result of one game. */
+    private static class Outcome {
+        /** The outcome of a game in which the first player is White
+         *  iff FIRSTISWHITE. */
+        Outcome(boolean firstIsWhite) {
+            _firstIsWhite = firstIsWhite;
+        }
+
+        /** True iff the first player was White. */
+        private final boolean _firstIsWhite;
+        /** True iff the first player won. */
+        private boolean _firstWon;
+        /** Number of moves made by each player (first, then second). */
+        private final int[] _moves = new int[2];
+        /** Time taken by each player to choose its moves, in
+         *  nanoseconds. */
+        private final long[] _moveNanos = new long[2];
+    }
+
+    /** Number of standard deviations on either side of the mean that a
+     *  95% confidence interval covers. */
+    private static final double Z_95 = 1.96;
+
+    /** Names of the players' Evaluators, first player first. */
+    private final String[] _names;
+    /** The players' Evaluators, first player first. */
+    private final Evaluator[] _evaluators;
+    /** Time allowed per move, in milliseconds. */
+    private final long _timeLimit;
+    /** Endgame tablebase used by the players, or null. */
+    private final Tablebase _tablebase;
+    /** Opening book used by the players, or null. */
+    private final OpeningBook _book;
+
+    /** Where games are recorded, or null. */
+    private GameRecord.Writer _recorder;
+
+    /** Numbers of games won and lost by the first player, and of games
+     *  won by White. */
+    private int _wins, _losses, _whiteWins;
+    /** Total moves made by each player. */
+    private final int[] _moves = new int[2];
+    /** Total time taken by each player to choose moves, in
+     *  nanoseconds. */
+    private final long[] _moveNanos = new long[2];
+    /** Total elapsed time of calls to play, in nanoseconds. */
+    private long _nanos;
+}
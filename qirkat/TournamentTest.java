@@ -0,0 +1,45 @@
+package qirkat;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of self-play tournaments.
+ *  @author Chelsea Chen
+ */
+public class TournamentTest {
+
+    @Test
+    public void testElo() {
+        assertEquals(0.0, Tournament.elo(0.5), 1e-9);
+        assertEquals(190.85, Tournament.elo(0.75), 0.01);
+        assertEquals(-Tournament.elo(0.9), Tournament.elo(0.1), 1e-9);
+    }
+
+    @Test
+    public void testEvaluator() {
+        assertSame(WeightedEvaluator.DEFAULT,
+                   Tournament.evaluator("weighted"));
+        assertTrue(Tournament.evaluator("material")
+                   instanceof MaterialEvaluator);
+        assertNull(Tournament.evaluator("random"));
+    }
+
+    @Test
+    public void testPlay() throws IOException {
+        Tournament tournament =
+            new Tournament("weighted", "material", 5, null, null);
+        tournament.play(6, 3, 0);
+        assertEquals(6, tournament.games());
+        assertEquals(6, tournament.wins() + tournament.losses());
+        tournament.play(2, 1, 10);
+        assertEquals(8, tournament.games());
+        assertTrue(tournament.toString().startsWith("8 games of weighted"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEvaluator() {
+        new Tournament("weighted", "random", 5, null, null);
+    }
+}
@@ -0,0 +1,151 @@
+package qirkat;
+
+import java.util.Arrays;
+
+/** A fixed-size table of search results, indexed by Board.key().
+ *  Each slot records the key of the position it describes, the depth to
+ *  which that position was searched, whether the recorded score is exact
+ *  or only a bound, the score, and the best move found, encoded as for
+ *  Board.encode.  The fields are kept in parallel arrays of primitive
+ *  values, so that lookups and stores allocate nothing.
+ *
+ *  The table may be shared by several searching threads without
+ *  locking.  The depth, bound, and score of a slot are packed into a
+ *  single long (an "entry"), and the slot's key is stored exclusive-or'ed
+ *  with its entry, so that a probe that sees parts of two different
+ *  stores fails to match, rather than returning a mixture of the two.
+ *  The best move is stored separately and may therefore belong to
+ *  another position; callers must check that it is legal.
+ *  @author Chelsea Chen
+ */
+class TranspositionTable {
+
+    /** Kinds of score recorded in a slot. EXACT scores are the true
+     *  minimax value of the position to the recorded depth; LOWER and
+     *  UPPER scores are bounds on it from a search that was cut off. */
+    static final int EXACT = 0, LOWER = 1, UPPER = 2;
+
+    /** Policies for deciding whether a store may overwrite an existing
+     *  entry for a different position. */
+    enum Replacement {
+        /** Always overwrite. */
+        ALWAYS,
+        /** Overwrite only entries left over from an earlier search or
+         *  searched to no greater depth than the new entry. */
+        DEPTH_PREFERRED
+    }
+
+    /** A table with 2**LOGSIZE slots that replaces entries according to
+     *  POLICY. */
+    TranspositionTable(int logSize, Replacement policy) {
+        int size = 1 << logSize;
+        _mask = size - 1;
+        _policy = policy;
+        _keys = new long[size];
+        _entries = new long[size];
+        _moves = new long[size];
+    }
+
+    /** Mark the start of a new search.  Entries from earlier searches
+     *  remain usable, but are preferentially replaced.  Not to be called
+     *  while other threads are using the table. */
+    void newSearch() {
+        _generation = (_generation + 1) & GENERATION_MASK;
+    }
+
+    /** Remove all entries.  Not to be called while other threads are
+     *  using the table. */
+    void clear() {
+        Arrays.fill(_entries, 0);
+        Arrays.fill(_moves, 0);
+    }
+
+    /** Return the entry for the position with key KEY, or 0 if there
+     *  is none.  The parts of the entry are extracted with depth(),
+     *  bound(), and score(). */
+    long probe(long key) {
+        int slot = (int) key & _mask;
+        long entry = _entries[slot];
+        if (entry != 0 && (_keys[slot] ^ entry) == key) {
+            return entry;
+        }
+        return 0;
+    }
+
+    /** Return the encoded best move recorded for the position with key
+     *  KEY, or 0 if none. */
+    long move(long key) {
+        int slot = (int) key & _mask;
+        long result = _moves[slot];
+        return (_keys[slot] ^ _entries[slot]) == key ? result : 0;
+    }
+
+    /** Return the depth recorded in ENTRY. */
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the kind of score (EXACT, LOWER, or UPPER) in ENTRY. */
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & BOUND_MASK;
+    }
+
+    /** Return the score recorded in ENTRY. */
+    static int score(long entry) {
+        return (int) (entry >>> SCORE_SHIFT);
+    }
+
+    /** Record that the position with key KEY, searched to DEPTH, has
+     *  score SCORE of kind BOUND, and encoded best move BEST (0 if
+     *  none), unless the replacement policy prefers the existing
+     *  entry. */
+    void store(long key, int depth, int bound, int score, long best) {
+        int slot = (int) key & _mask;
+        long old = _entries[slot];
+        boolean same = (_keys[slot] ^ old) == key;
+        if (old != 0 && !same
+            && _policy == Replacement.DEPTH_PREFERRED
+            && (old & GENERATION_MASK) == _generation
+            && depth(old) > depth) {
+            return;
+        }
+        if (best == 0 && same) {
+            best = _moves[slot];
+        }
+        long entry = ((long) score << SCORE_SHIFT)
+            | ((long) (depth & DEPTH_MASK) << DEPTH_SHIFT)
+            | ((long) bound << BOUND_SHIFT) | IN_USE | _generation;
+        _moves[slot] = best;
+        _entries[slot] = entry;
+        _keys[slot] = key ^ entry;
+    }
+
+    /** Layout of entries: the low bits hold the generation of the search
+     *  that stored the entry, then an in-use flag (so that no entry is
+     *  0), then the bound kind, then the depth, and the high 32 bits
+     *  hold the score. */
+    private static final int
+        GENERATION_MASK = 0xff,
+        IN_USE = 0x100,
+        BOUND_SHIFT = 9,
+        BOUND_MASK = 3,
+        DEPTH_SHIFT = 11,
+        DEPTH_MASK = 0xff,
+        SCORE_SHIFT = 32;
+
+    /** The index of the slot for a key is key & _mask. */
+    private final int _mask;
+    /** My replacement policy. */
+    private final Replacement _policy;
+    /** Key of the position recorded in each slot, exclusive-or'ed with
+     *  the slot's entry. */
+    private final long[] _keys;
+    /** Depth, bound kind, score, and generation of each slot, packed as
+     *  described for GENERATION_MASK and its fellows.  Zero for an
+     *  empty slot. */
+    private final long[] _entries;
+    /** Recorded best moves. */
+    private final long[] _moves;
+    /** The generation of the current search. */
+    private int _generation;
+}
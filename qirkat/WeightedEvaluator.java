@@ -0,0 +1,48 @@
+package qirkat;
+
+/** An Evaluator that combines the differences between the two sides in
+ *  material, advancement, and mobility (see Board.count,
+ *  Board.advancement, and Board.mobility) in a weighted sum.  Each term
+ *  is maintained by the Board or computed from its bit masks, so an
+ *  evaluation takes constant time.
+ *  @author Chelsea Chen
+ */
+class WeightedEvaluator implements Evaluator {
+
+    /** The weights used by AIs by default, chosen by fixed-depth
+     *  matches against MaterialEvaluator.  The negative advancement
+     *  weight favors holding pieces back, where they keep more moves. */
+    static final WeightedEvaluator DEFAULT =
+        new WeightedEvaluator(100, -3, 10);
+
+    /** An Evaluator that weights the material, advancement, and mobility
+     *  differences by MATERIAL, ADVANCEMENT, and MOBILITY. */
+    WeightedEvaluator(int material, int advancement, int mobility) {
+        _material = material;
+        _advancement = advancement;
+        _mobility = mobility;
+    }
+
+    @Override
+    public int evaluate(Board board, PieceColor who) {
+        PieceColor opp = who.opposite();
+        return _material * (board.count(who) - board.count(opp))
+            + _advancement * (board.advancement(who)
+                              - board.advancement(opp))
+            + _mobility * (board.mobility(who) - board.mobility(opp));
+    }
+
+    @Override
+    public int pieceValue() {
+        return Math.abs(_material);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("weighted(%d, %d, %d)", _material,
+                             _advancement, _mobility);
+    }
+
+    /** Weights of the material, advancement, and mobility terms. */
+    private final int _material, _advancement, _mobility;
+}